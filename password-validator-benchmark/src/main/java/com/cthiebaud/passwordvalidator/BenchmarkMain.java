@@ -0,0 +1,133 @@
+package com.cthiebaud.passwordvalidator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmarks every downloaded student validator and ranks them.
+ * <p>
+ * Student jars are found in {@code downloaded_packages} from the coordinates
+ * in {@code packages_metadata.yaml} (as written by {@link MetadataExtractor}),
+ * and run through {@link ValidatorBenchmark} on every {@link PasswordCorpus},
+ * with the GC profiler measuring allocations. The ranking is written to
+ * {@value #JSON_REPORT} and {@value #CSV_REPORT}.
+ * <p>
+ * Usage, from the root of the repository: {@code java -jar
+ * password-validator-benchmark/target/benchmarks.jar [--reference=JAR]
+ * [--metadata=FILE] [--packages=DIR] [--project=FILTER] [JMH options]}. The
+ * reference jar defaults to the one {@link AcceptanceRunner} downloads to
+ * {@code target}; {@code --project} keeps only the projects whose key contains
+ * it; anything else is handed to JMH, e.g. {@code -f 1 -wi 2 -i 3}.
+ */
+public class BenchmarkMain {
+
+    static final String JSON_REPORT = "benchmark_report.json";
+    static final String CSV_REPORT = "benchmark_report.csv";
+
+    public static void main(String[] args) throws Exception {
+        String referenceArg = null;
+        String metadataFile = MetadataExtractor.METADATA_FILE;
+        String packagesDir = AcceptanceRunner.DOWNLOADED_DIR;
+        String project = null;
+        List<String> jmhArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--reference=")) {
+                referenceArg = arg.substring("--reference=".length());
+            } else if (arg.startsWith("--metadata=")) {
+                metadataFile = arg.substring("--metadata=".length());
+            } else if (arg.startsWith("--packages=")) {
+                packagesDir = arg.substring("--packages=".length());
+            } else if (arg.startsWith("--project=")) {
+                project = arg.substring("--project=".length());
+            } else {
+                jmhArgs.add(arg);
+            }
+        }
+
+        Path referenceJar = referenceArg != null
+                ? Path.of(referenceArg)
+                : AcceptanceRunner.findReferenceJar().orElse(null);
+        if (referenceJar == null || !Files.isRegularFile(referenceJar)) {
+            System.err.println("No reference jar, run AcceptanceRunner first or pass --reference=JAR");
+            System.exit(1);
+        }
+
+        Map<String, BenchmarkReport.Project> projects = findProjects(new File(metadataFile), Path.of(packagesDir),
+                project);
+        if (projects.isEmpty()) {
+            System.err.println("No student jars to benchmark");
+            System.exit(1);
+        }
+
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(jmhArgs.toArray(String[]::new)))
+                .include(ValidatorBenchmark.class.getName())
+                .param("jar", projects.keySet().toArray(String[]::new))
+                .addProfiler(GCProfiler.class)
+                .jvmArgsAppend(
+                        "-D" + ValidatorBenchmark.PACKAGES_PROPERTY + "=" + Path.of(packagesDir).toAbsolutePath(),
+                        "-D" + ValidatorBenchmark.REFERENCE_PROPERTY + "=" + referenceJar.toAbsolutePath())
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        List<BenchmarkReport.Entry> ranking = BenchmarkReport.rank(results, projects);
+        BenchmarkReport.writeJson(ranking, JSON_REPORT);
+        BenchmarkReport.writeCsv(ranking, CSV_REPORT);
+
+        System.out.println();
+        for (BenchmarkReport.Entry entry : ranking) {
+            System.out.printf("%3s  %-40s %s%n", entry.rank() != null ? entry.rank() : "-", entry.artifactId(),
+                    entry.score() != null ? String.format("%,.0f ops/s", entry.score()) : "incomplete");
+        }
+        System.out.println("Report written to " + JSON_REPORT + " and " + CSV_REPORT);
+    }
+
+    // Student jars named after their metadata coordinates, keyed by jar file name
+    static Map<String, BenchmarkReport.Project> findProjects(File metadataFile, Path packagesDir, String filter)
+            throws Exception {
+        JsonNode root = new ObjectMapper(new YAMLFactory()).readTree(metadataFile);
+        JsonNode projectsNode = root.path("projects");
+
+        Map<String, BenchmarkReport.Project> projects = new TreeMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = projectsNode.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String key = field.getKey();
+            if (filter != null && !key.contains(filter)) {
+                continue;
+            }
+            JsonNode info = field.getValue();
+            // The reference program is not a student submission
+            if (AcceptanceRunner.GROUP_ID.equals(info.path("groupId").asText())
+                    && AcceptanceRunner.ARTIFACT_ID.equals(info.path("artifactId").asText())) {
+                continue;
+            }
+            String jar = key + "-" + info.path("version").asText() + ".jar";
+            if (!Files.isRegularFile(packagesDir.resolve(jar))) {
+                System.out.println("Skipping " + key + ": " + jar + " not found in " + packagesDir);
+                continue;
+            }
+            projects.put(jar, new BenchmarkReport.Project(info.path("groupId").asText(),
+                    info.path("artifactId").asText(), info.path("version").asText(), jar));
+        }
+        return projects;
+    }
+}
@@ -0,0 +1,182 @@
+package com.cthiebaud.passwordvalidator;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+
+/**
+ * Turns JMH results into a ranking of the student validators.
+ * <p>
+ * Validators are ranked by the geometric mean of their throughput over all
+ * corpora, so that no single corpus dominates the score. A validator that
+ * failed on some corpus (threw, or did not load) gets no score and is listed
+ * after the ranked ones.
+ */
+public class BenchmarkReport {
+
+    // Secondary result of the GC profiler; older JMH versions prefix it with '·'
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private BenchmarkReport() {
+    }
+
+    /**
+     * Builds the ranking.
+     *
+     * @param results  The JMH results of {@link ValidatorBenchmark}.
+     * @param projects The benchmarked projects, keyed by jar file name.
+     * @return The entries, best first.
+     */
+    public static List<Entry> rank(Collection<RunResult> results, Map<String, Project> projects) {
+        Map<String, Map<PasswordCorpus, Measurement>> byJar = new HashMap<>();
+        for (RunResult result : results) {
+            String jar = result.getParams().getParam("jar");
+            PasswordCorpus corpus = PasswordCorpus.valueOf(result.getParams().getParam("corpus"));
+            String benchmark = result.getParams().getBenchmark();
+            Measurement previous = byJar.computeIfAbsent(jar, _ -> new EnumMap<>(PasswordCorpus.class))
+                    .getOrDefault(corpus, Measurement.EMPTY);
+
+            Result<?> primary = result.getPrimaryResult();
+            Measurement measurement;
+            if (benchmark.endsWith(".throughput")) {
+                measurement = new Measurement(primary.getScore(), previous.averageNanos(), previous.p99Nanos(),
+                        allocation(result));
+            } else {
+                measurement = new Measurement(previous.throughput(), primary.getStatistics().getMean(),
+                        primary.getStatistics().getPercentile(99), previous.allocatedBytesPerOp());
+            }
+            byJar.get(jar).put(corpus, measurement);
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        for (Project project : projects.values()) {
+            Map<PasswordCorpus, Measurement> measurements = byJar.getOrDefault(project.jar(), Map.of());
+            Map<String, Measurement> corpora = new LinkedHashMap<>();
+            double logSum = 0;
+            boolean complete = true;
+            for (PasswordCorpus corpus : PasswordCorpus.values()) {
+                Measurement measurement = measurements.get(corpus);
+                if (measurement == null || measurement.throughput() == null || measurement.p99Nanos() == null) {
+                    complete = false;
+                }
+                if (measurement != null) {
+                    corpora.put(corpus.name().toLowerCase(Locale.ROOT), measurement);
+                    if (measurement.throughput() != null) {
+                        logSum += Math.log(measurement.throughput());
+                    }
+                }
+            }
+            Double score = complete ? Math.exp(logSum / PasswordCorpus.values().length) : null;
+            entries.add(new Entry(null, project.artifactId(), project.groupId(), project.version(), project.jar(),
+                    score, corpora));
+        }
+
+        entries.sort(Comparator.comparing(Entry::score, Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(Entry::artifactId));
+        List<Entry> ranked = new ArrayList<>(entries.size());
+        int rank = 0;
+        for (Entry entry : entries) {
+            ranked.add(entry.score() != null ? entry.withRank(++rank) : entry);
+        }
+        return ranked;
+    }
+
+    /**
+     * Writes the ranking as a JSON object keyed by artifactId, best first.
+     * Projects sharing an artifactId are keyed by {@code groupId.artifactId}.
+     *
+     * @param ranking    The ranking.
+     * @param outputPath The JSON file.
+     */
+    public static void writeJson(List<Entry> ranking, String outputPath) throws IOException {
+        Map<String, Long> artifactIdCounts = new HashMap<>();
+        ranking.forEach(entry -> artifactIdCounts.merge(entry.artifactId(), 1L, Long::sum));
+
+        Map<String, Entry> byArtifactId = new LinkedHashMap<>();
+        for (Entry entry : ranking) {
+            String key = artifactIdCounts.get(entry.artifactId()) > 1
+                    ? entry.groupId() + "." + entry.artifactId()
+                    : entry.artifactId();
+            byArtifactId.put(key, entry);
+        }
+
+        ObjectMapper mapper = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        mapper.writerWithDefaultPrettyPrinter().writeValue(new File(outputPath), byArtifactId);
+    }
+
+    /**
+     * Writes the ranking as CSV, one row per validator and corpus.
+     *
+     * @param ranking    The ranking.
+     * @param outputPath The CSV file.
+     */
+    public static void writeCsv(List<Entry> ranking, String outputPath) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new File(outputPath), StandardCharsets.UTF_8)) {
+            writer.println("rank,artifactId,groupId,version,score,corpus,throughput_ops_s,average_ns,p99_ns,"
+                    + "allocated_bytes_per_op");
+            for (Entry entry : ranking) {
+                for (Map.Entry<String, Measurement> corpus : entry.corpora().entrySet()) {
+                    Measurement measurement = corpus.getValue();
+                    writer.println(String.join(",",
+                            entry.rank() != null ? entry.rank().toString() : "",
+                            entry.artifactId(), entry.groupId(), entry.version(),
+                            format(entry.score()), corpus.getKey(),
+                            format(measurement.throughput()), format(measurement.averageNanos()),
+                            format(measurement.p99Nanos()), format(measurement.allocatedBytesPerOp())));
+                }
+            }
+        }
+    }
+
+    private static Double allocation(RunResult result) {
+        for (String name : List.of(ALLOCATION, "·" + ALLOCATION)) {
+            Result<?> secondary = result.getSecondaryResults().get(name);
+            if (secondary != null) {
+                return secondary.getScore();
+            }
+        }
+        return null;
+    }
+
+    private static String format(Double value) {
+        return value != null ? String.format(Locale.ROOT, "%.3f", value) : "";
+    }
+
+    /** A benchmarked student project. */
+    public record Project(String groupId, String artifactId, String version, String jar) {
+    }
+
+    /**
+     * What was measured on one corpus; {@code null} when the corresponding
+     * benchmark failed.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Measurement(Double throughput, Double averageNanos, Double p99Nanos, Double allocatedBytesPerOp) {
+        static final Measurement EMPTY = new Measurement(null, null, null, null);
+    }
+
+    /** One validator in the ranking; rank and score are {@code null} when incomplete. */
+    public record Entry(Integer rank, String artifactId, String groupId, String version, String jar, Double score,
+            Map<String, Measurement> corpora) {
+
+        Entry withRank(int rank) {
+            return new Entry(rank, artifactId, groupId, version, jar, score, corpora);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.cthiebaud.passwordvalidator;
+
+import java.util.Random;
+
+/**
+ * Fixed password corpora the validators are benchmarked on.
+ * <p>
+ * Every corpus is generated from its own seed, so all validators, and all runs,
+ * see exactly the same passwords.
+ */
+public enum PasswordCorpus {
+
+    /** Typical user input: 4 to 16 printable ASCII characters. */
+    SHORT(1) {
+        @Override
+        String password(Random random, int index) {
+            return ascii(random, 4 + random.nextInt(13));
+        }
+    },
+
+    /** Passphrases and pasted secrets: 256 to 4096 printable ASCII characters. */
+    LONG(2) {
+        @Override
+        String password(Random random, int index) {
+            return ascii(random, 256 + random.nextInt(3841));
+        }
+    },
+
+    /**
+     * Accented letters, CJK, right-to-left scripts, emoji outside the BMP,
+     * combining marks and zero-width characters, mixed with ASCII.
+     */
+    UNICODE(3) {
+        @Override
+        String password(Random random, int index) {
+            int length = 8 + random.nextInt(57);
+            StringBuilder password = new StringBuilder(length * 2);
+            for (int i = 0; i < length; i++) {
+                if (random.nextInt(4) == 0) {
+                    password.append(ASCII.charAt(random.nextInt(ASCII.length())));
+                } else {
+                    password.appendCodePoint(UNICODE_CODE_POINTS[random.nextInt(UNICODE_CODE_POINTS.length)]);
+                }
+            }
+            return password.toString();
+        }
+    },
+
+    /**
+     * Inputs known to make backtracking regular expressions blow up: long runs
+     * of one character class that fail on their last character, alternating
+     * classes, whitespace floods and unpaired surrogates.
+     */
+    ADVERSARIAL(4) {
+        @Override
+        String password(Random random, int index) {
+            // Nested quantifiers are exponential, so keep those runs short enough to terminate
+            int run = 16 + random.nextInt(17);
+            return switch (index % 8) {
+                case 0 -> "a".repeat(run) + "!";
+                case 1 -> "A".repeat(run) + "\u0000";
+                case 2 -> "1".repeat(run) + "a";
+                case 3 -> "aA1".repeat(run) + " ";
+                case 4 -> " ".repeat(1024 + random.nextInt(3073)) + "x";
+                case 5 -> "!@#$%^&*()".repeat(run);
+                case 6 -> "a".repeat(1024 + random.nextInt(3073)) + "1A!";
+                default -> "a".repeat(run) + "\uD83D"; // unpaired surrogate
+            };
+        }
+    };
+
+    /** The number of passwords in each corpus, a power of two. */
+    public static final int SIZE = 256;
+
+    private static final String ASCII = " !\"#$%&'()*+,-./0123456789:;<=>?@ABCDEFGHIJKLMNOPQRSTUVWXYZ"
+            + "[\\]^_`abcdefghijklmnopqrstuvwxyz{|}~";
+
+    private static final int[] UNICODE_CODE_POINTS = {
+            'é', 'ß', 'ñ', 'Ø', 'ç', // Latin-1
+            'Ω', 'λ', 'Ж', 'я', // Greek, Cyrillic
+            '中', '文', '密', '码', 'パ', 'ス', // CJK
+            'א', 'ש', 'ع', 'ب', // right-to-left
+            0x0301, 0x0308, // combining marks
+            0x200B, 0x200D, 0xFEFF, // zero-width space, joiner, BOM
+            0x1F600, 0x1F512, 0x1F468, 0x1D54F, // outside the BMP
+            '１', 'Ａ', // full-width digit and letter
+    };
+
+    private final long seed;
+
+    PasswordCorpus(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return The {@value #SIZE} passwords of the corpus, always the same.
+     */
+    public String[] passwords() {
+        Random random = new Random(seed);
+        String[] passwords = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            passwords[i] = password(random, i);
+        }
+        return passwords;
+    }
+
+    abstract String password(Random random, int index);
+
+    private static String ascii(Random random, int length) {
+        StringBuilder password = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            password.append(ASCII.charAt(random.nextInt(ASCII.length())));
+        }
+        return password.toString();
+    }
+}
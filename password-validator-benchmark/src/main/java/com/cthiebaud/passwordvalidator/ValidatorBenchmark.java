@@ -0,0 +1,93 @@
+package com.cthiebaud.passwordvalidator;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * JMH benchmark calling one student validator on one {@link PasswordCorpus}.
+ * <p>
+ * The student jar is loaded with the reference {@code password-validator} jar
+ * into its own class loader, as in {@link AcceptanceRunner}. Their locations
+ * come from the {@value #PACKAGES_PROPERTY} and {@value #REFERENCE_PROPERTY}
+ * system properties, which {@link BenchmarkMain} passes to the forked JVMs,
+ * and the jar file name from the {@code jar} parameter.
+ * <p>
+ * Each benchmark thread gets its own validator instance, since student
+ * implementations need not be thread-safe.
+ */
+@State(Scope.Thread)
+public class ValidatorBenchmark {
+
+    static final String PACKAGES_PROPERTY = "benchmark.packages";
+    static final String REFERENCE_PROPERTY = "benchmark.reference";
+
+    /** The student jar file name, set at run time by {@link BenchmarkMain}. */
+    @Param({ "" })
+    public String jar;
+
+    @Param({ "SHORT", "LONG", "UNICODE", "ADVERSARIAL" })
+    public PasswordCorpus corpus;
+
+    private URLClassLoader loader;
+    private ValidatorLoader.Validator validator;
+    private String[] passwords;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        if (jar.isEmpty()) {
+            throw new IllegalStateException("No jar parameter, run the benchmark through BenchmarkMain");
+        }
+        Path studentJar = Path.of(System.getProperty(PACKAGES_PROPERTY, AcceptanceRunner.DOWNLOADED_DIR), jar);
+        Path referenceJar = Path.of(System.getProperty(REFERENCE_PROPERTY));
+
+        // Parent is the platform loader so nothing from the benchmark leaks in
+        loader = new URLClassLoader(jar, new URL[] { referenceJar.toUri().toURL(), studentJar.toUri().toURL() },
+                ClassLoader.getPlatformClassLoader());
+        validator = ValidatorLoader.load(loader, studentJar);
+        passwords = corpus.passwords();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (loader != null) {
+            loader.close();
+        }
+    }
+
+    /** Validations per second. */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public boolean throughput() {
+        return validateNext();
+    }
+
+    /** Latency distribution of single validations, for the average and p99. */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean latency() {
+        return validateNext();
+    }
+
+    // Cycle through the corpus; SIZE is a power of two
+    private boolean validateNext() {
+        String password = passwords[next++ & (PasswordCorpus.SIZE - 1)];
+        return validator.isValid(password);
+    }
+}
@@ -0,0 +1,443 @@
+package com.cthiebaud.passwordvalidator;
+
+import com.cthiebaud.passwordvalidator.MetadataExtractor.PomInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Runs the acceptance test program against every student jar in a single JVM.
+ * <p>
+ * In-process replacement for {@code test_all.sh}. Each student jar is loaded
+ * together with the reference {@code password-validator} jar into its own
+ * {@link URLClassLoader}, the reference program's {@code main} is invoked with
+ * the student jar as argument, and the loader is closed afterwards. Runs go in
+ * parallel; what each run prints is captured separately and stored with its
+ * result in {@value #RESULTS_FILE}.
+ * <p>
+ * Every run is also appended to the {@link ResultStore}. A jar whose content
+ * and reference version are those of its last recorded run is not run again:
+ * that run's result is reported instead, so regrading after a few students
+ * pushed fixes only runs their jars. Runs that timed out are always repeated.
+ * <p>
+ * Usage: {@code AcceptanceRunner [-c|--cached] [--all] [--parallelism=N]
+ * [--timeout=S] [--cpu-timeout=S] [project]}. As with the script,
+ * {@code project} keeps only the jars whose name contains it, and
+ * {@code --cached} reuses the reference jar already in {@code target};
+ * {@code --all} runs unchanged jars too. Runs are scheduled and time-boxed by
+ * an {@link ExecutionScheduler}; both budgets default to
+ * {@value #DEFAULT_TIMEOUT_SECONDS} seconds.
+ * <p>
+ * The result has two checks: that the jar provides a {@code PasswordValidator}
+ * implementation, and that the reference {@code main} returned without throwing.
+ * What the reference program reports about the implementation is kept in the
+ * captured output only; it is not parsed into checks of its own, so a run whose
+ * output shows failed cases still passes if {@code main} returns normally.
+ * <p>
+ * Everything runs in this JVM, so a reference or student class calling
+ * {@code System.exit} ends the whole run: {@value #RESULTS_FILE} is not
+ * written, and only the runs finished before it are in the store. Use {@code test_all.sh}, which starts a JVM per jar, for such jars.
+ */
+public class AcceptanceRunner {
+
+    // Reference acceptance program, as downloaded by test_all.sh
+    static final String GROUP_ID = "com.cthiebaud";
+    static final String ARTIFACT_ID = "password-validator";
+    static final String VERSION = "1.1.1-SNAPSHOT";
+
+    static final String TARGET_DIR = "target";
+    static final String DOWNLOADED_DIR = "downloaded_packages";
+    static final String RESULTS_FILE = "acceptance_results.yaml";
+
+    // History of run durations, used to start the slowest jars first
+    static final String DURATIONS_FILE = ".acceptance-durations.json";
+
+    // Default per-jar budgets, in seconds
+    private static final int DEFAULT_TIMEOUT_SECONDS = 60;
+
+    /** Outcome of one student jar. */
+    public enum Outcome {
+        PASSED, FAILED,
+        /** The run exceeded its wall-clock or CPU budget and was abandoned. */
+        TIMEOUT
+    }
+
+    /**
+     * Result of a single check.
+     *
+     * @param name   The check name.
+     * @param passed Whether the check passed.
+     * @param detail The implementation found, or the failure reason.
+     */
+    public record CheckResult(String name, boolean passed, String detail) {
+    }
+
+    /**
+     * Result of running the acceptance checks against one student jar.
+     *
+     * @param jar            The student jar file name.
+     * @param outcome        {@code PASSED} when every check passed.
+     * @param durationMillis The wall-clock time of the run.
+     * @param checks         The individual checks, in execution order.
+     * @param output         What the reference program printed.
+     */
+    public record AcceptanceResult(String jar, Outcome outcome, long durationMillis, List<CheckResult> checks,
+            String output) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Parse arguments
+        String project = null;
+        boolean useCached = false;
+        boolean all = false;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int timeoutSeconds = DEFAULT_TIMEOUT_SECONDS;
+        Integer cpuTimeoutSeconds = null;
+        for (String arg : args) {
+            if (arg.equals("-c") || arg.equals("--cached")) {
+                useCached = true;
+            } else if (arg.equals("--all")) {
+                all = true;
+            } else if (arg.startsWith("--parallelism=")) {
+                parallelism = Integer.parseInt(arg.substring("--parallelism=".length()));
+            } else if (arg.startsWith("--timeout=")) {
+                timeoutSeconds = Integer.parseInt(arg.substring("--timeout=".length()));
+            } else if (arg.startsWith("--cpu-timeout=")) {
+                cpuTimeoutSeconds = Integer.parseInt(arg.substring("--cpu-timeout=".length()));
+            } else {
+                project = arg;
+            }
+        }
+
+        // Download the reference jar unless using the cached artifact
+        if (!useCached) {
+            downloadReferenceJar();
+        }
+
+        Optional<Path> referenceJar = findReferenceJar();
+        if (referenceJar.isEmpty()) {
+            System.err.println("Error: JAR not found in " + TARGET_DIR + ". Exiting.");
+            return;
+        }
+        System.out.println("Using JAR located at: " + referenceJar.get());
+
+        List<Path> studentJars = findStudentJars(Path.of(DOWNLOADED_DIR), project);
+        if (studentJars.isEmpty()) {
+            System.out.println("No student JAR files found in " + DOWNLOADED_DIR + ".");
+            return;
+        }
+
+        String referenceVersion = referenceVersion(referenceJar.get());
+        try (ResultStore store = ResultStore.open(Path.of(ResultStore.STORE_FILE))) {
+            String run = store.newRun();
+            // Keep the last result of jars unchanged since their last run
+            Map<String, AcceptanceResult> reused = new TreeMap<>();
+            Map<Path, String> hashes = new LinkedHashMap<>();
+            List<Path> jarsToRun = new ArrayList<>();
+            for (Path jar : studentJars) {
+                String hash = ResultStore.sha256(jar);
+                Optional<ResultStore.Record> last = store.latest(ExecutionScheduler.projectKey(jar));
+                if (!all && last.isPresent() && last.get().isReusableFor(hash, referenceVersion)) {
+                    reused.put(jar.getFileName().toString(), last.get().toResult(jar.getFileName().toString()));
+                } else {
+                    hashes.put(jar, hash);
+                    jarsToRun.add(jar);
+                }
+            }
+            if (!reused.isEmpty()) {
+                System.out.println("Skipping " + reused.size() + " jars unchanged since their last run"
+                        + " (--all to run them anyway).");
+            }
+
+            DurationStore durations = DurationStore.load(Path.of(DURATIONS_FILE));
+            ExecutionScheduler scheduler = new ExecutionScheduler(parallelism, Duration.ofSeconds(timeoutSeconds),
+                    Duration.ofSeconds(cpuTimeoutSeconds != null ? cpuTimeoutSeconds : timeoutSeconds), durations);
+
+            Map<String, AcceptanceResult> results = jarsToRun.isEmpty()
+                    ? new TreeMap<>()
+                    : new TreeMap<>(scheduler.runAll(referenceJar.get(), jarsToRun));
+            durations.save();
+
+            Map<String, PomInfo> metadata = readMetadata();
+            for (Path jar : jarsToRun) {
+                AcceptanceResult result = results.get(jar.getFileName().toString());
+                if (result != null) {
+                    String key = ExecutionScheduler.projectKey(jar);
+                    store.append(ResultStore.Record.of(run, key, metadata.get(key), hashes.get(jar),
+                            referenceVersion, result));
+                }
+            }
+
+            results.values().forEach(result -> System.out.printf("%-6s %6d ms  %s%n", result.outcome(),
+                    result.durationMillis(), result.jar()));
+            reused.values().forEach(result -> System.out.printf("%-6s %6d ms  %s (unchanged)%n", result.outcome(),
+                    result.durationMillis(), result.jar()));
+            results.putAll(reused);
+            writeResults(results, RESULTS_FILE);
+            if (!jarsToRun.isEmpty()) {
+                store.printDiff(run);
+            }
+        }
+    }
+
+    // The resolved version of the reference jar, from its name
+    static String referenceVersion(Path referenceJar) {
+        String name = referenceJar.getFileName().toString();
+        String prefix = GROUP_ID + "." + ARTIFACT_ID + "-";
+        return name.startsWith(prefix) && name.endsWith(".jar")
+                ? name.substring(prefix.length(), name.length() - ".jar".length())
+                : name;
+    }
+
+    // Coordinates of the projects, or none when packages_metadata.yaml has not been written
+    private static Map<String, PomInfo> readMetadata() {
+        try {
+            return MetadataCatalog.readProjects(Path.of(MetadataCatalog.CATALOG_FILE),
+                    Path.of(MetadataExtractor.METADATA_FILE));
+        } catch (IOException e) {
+            System.out.println("No project metadata, recording results without coordinates: " + e.getMessage());
+            return Map.of();
+        }
+    }
+
+    /**
+     * Runs the acceptance checks against one jar, in an isolated class loader.
+     *
+     * @param referenceJar The reference {@code password-validator} jar.
+     * @param studentJar   The student jar.
+     * @param output       Receives what the reference program prints.
+     * @return The result of the run.
+     */
+    public static AcceptanceResult run(Path referenceJar, Path studentJar, ByteArrayOutputStream output) {
+        long start = System.nanoTime();
+        List<CheckResult> checks = new ArrayList<>();
+
+        URL[] urls;
+        try {
+            urls = new URL[] { referenceJar.toUri().toURL(), studentJar.toUri().toURL() };
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+
+        // Parent is the platform loader so nothing from this module leaks in
+        try (URLClassLoader loader = new URLClassLoader(studentJar.getFileName().toString(), urls,
+                ClassLoader.getPlatformClassLoader())) {
+            checks.add(checkImplementation(loader, studentJar));
+            checks.add(checkAcceptance(loader, referenceJar, studentJar, output));
+        } catch (IOException e) {
+            checks.add(new CheckResult("close", false, e.toString()));
+        }
+
+        long durationMillis = (System.nanoTime() - start) / 1_000_000;
+        Outcome outcome = checks.stream().allMatch(CheckResult::passed) ? Outcome.PASSED : Outcome.FAILED;
+        String printed;
+        synchronized (output) {
+            printed = output.toString(StandardCharsets.UTF_8);
+        }
+        return new AcceptanceResult(studentJar.getFileName().toString(), outcome, durationMillis, checks, printed);
+    }
+
+    // The jar provides an implementation of the PasswordValidator interface
+    private static CheckResult checkImplementation(ClassLoader loader, Path studentJar) {
+        try {
+            return ValidatorLoader.findImplementation(loader, studentJar)
+                    .map(type -> new CheckResult("implementation", true, type.getName()))
+                    .orElse(new CheckResult("implementation", false,
+                            "no " + ValidatorLoader.PASSWORD_VALIDATOR + " implementation found"));
+        } catch (Exception | LinkageError e) {
+            return new CheckResult("implementation", false, e.toString());
+        }
+    }
+
+    // The reference program runs to completion against the jar; its verdict is only in the output
+    private static CheckResult checkAcceptance(ClassLoader loader, Path referenceJar, Path studentJar,
+            OutputStream output) {
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        thread.setContextClassLoader(loader);
+        OutputCapture.begin(output);
+        try {
+            Class<?> mainClass = Class.forName(mainClassName(referenceJar), true, loader);
+            Method main = mainClass.getMethod("main", String[].class);
+            main.invoke(null, (Object) new String[] { studentJar.toString() });
+            return new CheckResult("acceptance", true, null);
+        } catch (InvocationTargetException e) {
+            return new CheckResult("acceptance", false, e.getCause().toString());
+        } catch (Exception | LinkageError e) {
+            return new CheckResult("acceptance", false, e.toString());
+        } finally {
+            OutputCapture.end();
+            thread.setContextClassLoader(previous);
+        }
+    }
+
+    private static String mainClassName(Path jar) throws IOException {
+        try (JarFile jarFile = new JarFile(jar.toFile())) {
+            String mainClass = jarFile.getManifest() != null
+                    ? jarFile.getManifest().getMainAttributes().getValue("Main-Class")
+                    : null;
+            if (mainClass == null) {
+                throw new IOException("No Main-Class in " + jar.getFileName());
+            }
+            return mainClass;
+        }
+    }
+
+    // Student jars, in name order, keeping those whose name contains the project filter
+    static List<Path> findStudentJars(Path directory, String project) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".jar"))
+                    .filter(file -> project == null || file.getFileName().toString().contains(project))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    // The reference jar downloaded to target/, if any
+    static Optional<Path> findReferenceJar() throws IOException {
+        Path target = Path.of(TARGET_DIR);
+        if (!Files.isDirectory(target)) {
+            return Optional.empty();
+        }
+        String prefix = GROUP_ID + "." + ARTIFACT_ID + "-";
+        try (Stream<Path> files = Files.list(target)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix)
+                    && file.getFileName().toString().endsWith(".jar"))
+                    .sorted()
+                    .findFirst();
+        }
+    }
+
+    // Same as steps 1 and 2 of test_all.sh
+    private static void downloadReferenceJar() throws IOException, InterruptedException {
+        Files.createDirectories(Path.of(TARGET_DIR));
+
+        System.out.println("Cleaning up existing JARs in " + TARGET_DIR + "...");
+        File[] stale = new File(TARGET_DIR).listFiles((_, name) -> name.startsWith(GROUP_ID + "." + ARTIFACT_ID + "-")
+                && name.endsWith(".jar"));
+        for (File file : stale != null ? stale : new File[0]) {
+            Files.delete(file.toPath());
+        }
+
+        System.out.println("Downloading " + ARTIFACT_ID + "...");
+        Process process = new ProcessBuilder("mvn", "dependency:copy", "-U",
+                "-Dartifact=" + GROUP_ID + ":" + ARTIFACT_ID + ":" + VERSION + ":jar",
+                "-DoutputDirectory=" + TARGET_DIR,
+                "-Dmdep.prependGroupId=true",
+                "-Dmdep.useBaseVersion=false",
+                "-Dmdep.stripVersion=false")
+                .inheritIO()
+                .start();
+        if (process.waitFor() != 0) {
+            System.err.println("Warning: downloading " + ARTIFACT_ID + " failed with exit code "
+                    + process.exitValue());
+        }
+    }
+
+    /**
+     * Writes the results to a YAML file.
+     *
+     * @param results    The results keyed by jar file name.
+     * @param outputPath The path of the output YAML file.
+     */
+    static void writeResults(Map<String, AcceptanceResult> results, String outputPath) {
+        try {
+            YAMLFactory yamlFactory = new YAMLFactory()
+                    .enable(YAMLGenerator.Feature.MINIMIZE_QUOTES)
+                    .enable(YAMLGenerator.Feature.LITERAL_BLOCK_STYLE)
+                    .disable(YAMLGenerator.Feature.SPLIT_LINES);
+            ObjectMapper yamlMapper = new ObjectMapper(yamlFactory);
+            yamlMapper.setDefaultPropertyInclusion(com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL);
+            yamlMapper.writeValue(new File(outputPath), Map.of("results", results));
+
+            System.out.println("Acceptance results written to YAML file: " + outputPath);
+        } catch (IOException e) {
+            System.out.println("Error writing to YAML file.");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Routes {@code System.out} and {@code System.err} to a per-run buffer.
+     * <p>
+     * The streams are replaced once by a dispatcher; threads started by a run
+     * inherit its buffer, everything else goes to the original console.
+     */
+    static final class OutputCapture extends OutputStream {
+        private static final InheritableThreadLocal<OutputStream> TARGET = new InheritableThreadLocal<>();
+        private static boolean installed;
+
+        private final PrintStream console;
+
+        private OutputCapture(PrintStream console) {
+            this.console = console;
+        }
+
+        static synchronized void install() {
+            if (!installed) {
+                System.setOut(new PrintStream(new OutputCapture(System.out), true, StandardCharsets.UTF_8));
+                System.setErr(new PrintStream(new OutputCapture(System.err), true, StandardCharsets.UTF_8));
+                installed = true;
+            }
+        }
+
+        static void begin(OutputStream target) {
+            TARGET.set(target);
+        }
+
+        static void end() {
+            TARGET.remove();
+        }
+
+        private OutputStream target() {
+            OutputStream target = TARGET.get();
+            return target != null ? target : console;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            OutputStream target = target();
+            synchronized (target) {
+                target.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            OutputStream target = target();
+            synchronized (target) {
+                target.write(buffer, offset, length);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target().flush();
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package com.cthiebaud.passwordvalidator;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Downloads the jar and POM of every package of {@code packages.txt}.
+ * <p>
+ * In-process replacement for {@code download_packages.sh}. SNAPSHOT versions
+ * are resolved to their latest timestamped build through
+ * {@code maven-metadata.xml}, files are streamed to disk while their SHA-1 is
+ * computed and checked against the repository's {@code .sha1}, and files
+ * already downloaded with the right checksum are not fetched again. Files are
+ * named {@code groupId.artifactId-version.ext}, as {@code mvn dependency:copy
+ * -Dmdep.prependGroupId=true} names them. Requests run concurrently, at most
+ * {@code maxInFlight} at a time.
+ * <p>
+ * Usage: {@code ArtifactDownloader [--repository=URL] [--parallelism=N]}. The
+ * repository defaults to {@value #REPOSITORY_URL}, authenticated with the
+ * token of {@code src/main/resources/github-token.txt}; a {@code file:}
+ * repository needs no token.
+ */
+public class ArtifactDownloader {
+
+    // GitHub Packages serves every package of the owner under any repository
+    // name; download_packages.sh resolves snapshots through this one
+    static final String REPOSITORY_URL = "https://maven.pkg.github.com/athenaeum-brew/boh";
+    static final String PACKAGES_FILE = "packages.txt";
+
+    // GitHub Packages accepts any user name along with a token
+    static final String REPOSITORY_USER = "cthiebaud";
+
+    // Maximum number of concurrent repository requests
+    static final int DEFAULT_MAX_IN_FLIGHT = 8;
+
+    private static final List<String> EXTENSIONS = List.of("jar", "pom");
+    private static final Pattern SHA1 = Pattern.compile("[0-9a-f]{40}");
+    private static final XMLInputFactory XML = XMLInputFactory.newFactory();
+
+    private final MavenRepository repository;
+    private final Path outputDir;
+    private final AsyncLimiter limiter;
+    private final ExecutorService executor;
+
+    /**
+     * @param repository  The repository to download from.
+     * @param outputDir   The directory to download to.
+     * @param maxInFlight The maximum number of concurrent requests.
+     * @param executor    Runs the blocking reads and writes.
+     */
+    public ArtifactDownloader(MavenRepository repository, Path outputDir, int maxInFlight, ExecutorService executor) {
+        this.repository = repository;
+        this.outputDir = outputDir;
+        this.limiter = new AsyncLimiter(Math.max(1, maxInFlight));
+        this.executor = executor;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String repositoryUrl = REPOSITORY_URL;
+        int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+        for (String arg : args) {
+            if (arg.startsWith("--repository=")) {
+                repositoryUrl = arg.substring("--repository=".length());
+            } else if (arg.startsWith("--parallelism=")) {
+                maxInFlight = Integer.parseInt(arg.substring("--parallelism=".length()));
+            }
+        }
+
+        URI repositoryUri = URI.create(repositoryUrl);
+        String token = null;
+        if (!"file".equals(repositoryUri.getScheme())) {
+            token = GitHubPackagesLister.loadToken("src/main/resources/github-token.txt");
+            if (token == null || token.isBlank()) {
+                System.err.println("GitHub token is invalid or missing. Exiting.");
+                return;
+            }
+        }
+
+        List<String> packages = readPackages(Path.of(PACKAGES_FILE));
+        Path outputDir = Path.of(AcceptanceRunner.DOWNLOADED_DIR);
+        Files.createDirectories(outputDir);
+
+        ExecutorService executor = Executors.newCachedThreadPool(runnable -> Thread.ofPlatform().daemon()
+                .name("artifact-io").unstarted(runnable));
+        try {
+            MavenRepository repository = MavenRepository.of(repositoryUri, REPOSITORY_USER, token,
+                    HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build(), executor);
+            ArtifactDownloader downloader = new ArtifactDownloader(repository, outputDir, maxInFlight, executor);
+
+            List<PackageResult> results = downloader.downloadAll(packages);
+            results.forEach(result -> result.log().forEach(System.out::println));
+            downloader.pruneStale(results);
+
+            long downloaded = results.stream().flatMap(result -> result.artifacts().stream())
+                    .filter(artifact -> artifact.status() != Status.UP_TO_DATE).count();
+            long upToDate = results.stream().flatMap(result -> result.artifacts().stream())
+                    .filter(artifact -> artifact.status() == Status.UP_TO_DATE).count();
+            long failed = results.stream().filter(result -> result.error() != null).count();
+            System.out.printf(
+                    "All packages downloaded to %s (%d files downloaded, %d up to date, %d packages failed)%n",
+                    outputDir, downloaded, upToDate, failed);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Downloads packages concurrently.
+     *
+     * @param packages {@code groupId:artifactId:version} coordinates.
+     * @return The results, in the order of {@code packages}.
+     */
+    public List<PackageResult> downloadAll(List<String> packages) {
+        List<CompletableFuture<PackageResult>> futures = new ArrayList<>(packages.size());
+        for (String coordinates : packages) {
+            futures.add(download(coordinates));
+        }
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    /**
+     * Downloads the jar and POM of one package. Failures are reported in the
+     * result rather than thrown.
+     *
+     * @param coordinates {@code groupId:artifactId:version}.
+     * @return The result.
+     */
+    public CompletableFuture<PackageResult> download(String coordinates) {
+        String[] parts = coordinates.split(":");
+        if (parts.length != 3) {
+            return CompletableFuture.completedFuture(new PackageResult(coordinates, null, null, List.of(),
+                    List.of("Error: invalid coordinates " + coordinates), "invalid coordinates"));
+        }
+        String groupId = parts[0];
+        String artifactId = parts[1];
+        String version = parts[2];
+
+        // Same rule as download_packages.sh
+        if (isSkipped(groupId, artifactId)) {
+            return CompletableFuture.completedFuture(new PackageResult(coordinates, projectKey(groupId, artifactId),
+                    null, List.of(), List.of("Skipping package: " + coordinates + " (it's yours!)"), null));
+        }
+
+        List<String> log = new ArrayList<>();
+        log.add("Processing " + coordinates);
+        String directory = groupId.replace('.', '/') + "/" + artifactId + "/" + version + "/";
+
+        return resolveVersion(directory, version, log)
+                .thenCompose(resolvedVersion -> {
+                    List<CompletableFuture<ArtifactResult>> artifacts = new ArrayList<>();
+                    for (String extension : EXTENSIONS) {
+                        String fileName = artifactId + "-" + resolvedVersion + "." + extension;
+                        Path target = outputDir.resolve(groupId + "." + fileName);
+                        artifacts.add(fetchArtifact(directory + fileName, target));
+                    }
+                    return CompletableFuture.allOf(artifacts.toArray(CompletableFuture[]::new))
+                            .thenApply(_ -> {
+                                List<ArtifactResult> done = artifacts.stream().map(CompletableFuture::join)
+                                        .toList();
+                                done.forEach(artifact -> log.add(artifact.status().label() + " "
+                                        + artifact.file().getFileName()));
+                                return new PackageResult(coordinates, projectKey(groupId, artifactId),
+                                        resolvedVersion, done, log, null);
+                            });
+                })
+                .exceptionally(error -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause()
+                            : error;
+                    Metrics.DOWNLOAD_FAILURES.increment();
+                    log.add("Error downloading " + coordinates + ": " + cause.getMessage());
+                    return new PackageResult(coordinates, projectKey(groupId, artifactId), null, List.of(), log,
+                            cause.toString());
+                });
+    }
+
+    // Resolve a SNAPSHOT to its latest timestamped build, as download_packages.sh does
+    private CompletableFuture<String> resolveVersion(String directory, String version, List<String> log) {
+        if (!version.endsWith("-SNAPSHOT")) {
+            return CompletableFuture.completedFuture(version);
+        }
+        return fetchText(directory + "maven-metadata.xml").thenApply(metadata -> {
+            String resolved = metadata.map(xml -> snapshotVersion(version, xml)).orElse(null);
+            if (resolved == null) {
+                log.add("Warning: Unable to resolve timestamped version for " + directory
+                        + ". Falling back to base version: " + version);
+                return version;
+            }
+            log.add("Resolved " + version + " to " + resolved);
+            return resolved;
+        });
+    }
+
+    // <versioning><snapshot><timestamp/><buildNumber/></snapshot></versioning>
+    static String snapshotVersion(String version, String metadata) {
+        try {
+            XMLStreamReader reader = XML.createXMLStreamReader(new ByteArrayInputStream(
+                    metadata.getBytes(StandardCharsets.UTF_8)));
+            try {
+                List<String> path = new ArrayList<>();
+                String timestamp = null;
+                String buildNumber = null;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        path.add(reader.getLocalName());
+                        String joined = String.join("/", path);
+                        if (joined.equals("metadata/versioning/snapshot/timestamp")) {
+                            timestamp = reader.getElementText().trim();
+                            path.removeLast();
+                        } else if (joined.equals("metadata/versioning/snapshot/buildNumber")) {
+                            buildNumber = reader.getElementText().trim();
+                            path.removeLast();
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        path.removeLast();
+                    }
+                }
+                if (timestamp == null || timestamp.isEmpty() || buildNumber == null || buildNumber.isEmpty()) {
+                    return null;
+                }
+                return version.substring(0, version.length() - "-SNAPSHOT".length()) + "-" + timestamp + "-"
+                        + buildNumber;
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            return null;
+        }
+    }
+
+    // Skip the download when the file on disk matches the published checksum
+    private CompletableFuture<ArtifactResult> fetchArtifact(String path, Path target) {
+        return fetchText(path + ".sha1").thenComposeAsync(checksum -> {
+            String expected = checksum.map(ArtifactDownloader::parseSha1).orElse(null);
+            if (expected != null && Files.isRegularFile(target) && expected.equals(sha1(target))) {
+                return CompletableFuture.completedFuture(new ArtifactResult(target, Status.UP_TO_DATE));
+            }
+            return limiter.submit(() -> repository.open(path)
+                    .thenApplyAsync(body -> save(body.orElseThrow(() -> new UncheckedIOException(
+                            new IOException("Not found in repository: " + path))), target, expected), executor));
+        }, executor);
+    }
+
+    // Stream to a temporary file while hashing, then move into place if the checksum matches
+    private ArtifactResult save(InputStream body, Path target, String expected) {
+        try (body) {
+            Path temp = Files.createTempFile(outputDir, target.getFileName().toString(), ".part");
+            try {
+                MessageDigest digest = sha1Digest();
+                try (OutputStream output = Files.newOutputStream(temp)) {
+                    new DigestInputStream(body, digest).transferTo(output);
+                }
+                String actual = HexFormat.of().formatHex(digest.digest());
+                if (expected != null && !expected.equals(actual)) {
+                    throw new IOException("Checksum mismatch for " + target.getFileName() + ": expected " + expected
+                            + ", got " + actual);
+                }
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return new ArtifactResult(target, expected != null ? Status.DOWNLOADED : Status.UNVERIFIED);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private CompletableFuture<Optional<String>> fetchText(String path) {
+        return limiter.submit(() -> repository.open(path).thenApplyAsync(body -> body.map(input -> {
+            try (input) {
+                return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }), executor));
+    }
+
+    // .sha1 files hold the hex digest, sometimes followed by the file name
+    private static String parseSha1(String content) {
+        String[] tokens = content.trim().split("\\s+");
+        String sha1 = tokens.length > 0 ? tokens[0].toLowerCase() : "";
+        return SHA1.matcher(sha1).matches() ? sha1 : null;
+    }
+
+    private static String sha1(Path file) {
+        try (InputStream input = new DigestInputStream(Files.newInputStream(file), sha1Digest())) {
+            input.transferTo(OutputStream.nullOutputStream());
+            return HexFormat.of().formatHex(((DigestInputStream) input).getMessageDigest().digest());
+        } catch (IOException e) {
+            return null; // Download it again
+        }
+    }
+
+    private static MessageDigest sha1Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Deletes the jars and POMs of the output directory that this run did not
+     * download or confirm, such as older builds of a package or packages no
+     * longer listed, as {@code download_packages.sh} does by emptying the
+     * directory first. Files of packages that failed to download are kept.
+     *
+     * @param results The results of this run.
+     */
+    public void pruneStale(List<PackageResult> results) throws IOException {
+        Set<Path> current = results.stream().flatMap(result -> result.artifacts().stream())
+                .map(artifact -> artifact.file().getFileName()).collect(Collectors.toSet());
+        Set<String> failed = results.stream().filter(result -> result.error() != null)
+                .map(PackageResult::projectKey).collect(Collectors.toSet());
+        try (Stream<Path> files = Files.list(outputDir)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (!(name.endsWith(".jar") || name.endsWith(".pom")) || current.contains(file.getFileName())
+                        || failed.contains(MetadataExtractor.extractArtifactIdFromFileName(
+                                name.replaceFirst("\\.jar$", ".pom")))) {
+                    continue;
+                }
+                System.out.println("Removing stale file: " + name);
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * @param packagesFile A file with one {@code groupId:artifactId:version} per line.
+     * @return Its non-blank lines.
+     */
+    static List<String> readPackages(Path packagesFile) throws IOException {
+        return Files.readAllLines(packagesFile).stream().map(String::trim).filter(line -> !line.isEmpty())
+                .toList();
+    }
+
+    // Packages of com.cthiebaud are not student work, except the reference implementation
+    static boolean isSkipped(String groupId, String artifactId) {
+        return groupId.startsWith("com.cthiebaud") && !artifactId.equals("password-validator-impl");
+    }
+
+    private static String projectKey(String groupId, String artifactId) {
+        return groupId + "." + artifactId;
+    }
+
+    /** What happened to a downloaded file. */
+    public enum Status {
+        DOWNLOADED("Downloaded"),
+        /** Downloaded, but the repository has no checksum for it. */
+        UNVERIFIED("Downloaded (no checksum)"),
+        UP_TO_DATE("Up to date");
+
+        private final String label;
+
+        Status(String label) {
+            this.label = label;
+        }
+
+        String label() {
+            return label;
+        }
+    }
+
+    /**
+     * @param file   The file in the output directory.
+     * @param status Whether it was downloaded.
+     */
+    public record ArtifactResult(Path file, Status status) {
+    }
+
+    /**
+     * Result of downloading one package.
+     *
+     * @param coordinates     The coordinates from {@code packages.txt}.
+     * @param projectKey      {@code groupId.artifactId}, as in file names.
+     * @param resolvedVersion The version downloaded, SNAPSHOTs resolved.
+     * @param artifacts       The jar and POM, when downloaded.
+     * @param log             What to print about the package, in order.
+     * @param error           Why the download failed, if it did.
+     */
+    public record PackageResult(String coordinates, String projectKey, String resolvedVersion,
+            List<ArtifactResult> artifacts, List<String> log, String error) {
+    }
+}
@@ -0,0 +1,66 @@
+package com.cthiebaud.passwordvalidator;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Starts asynchronous tasks while fewer than {@code limit} are running and
+ * queues the rest, starting each queued task as a running one completes.
+ */
+final class AsyncLimiter {
+    private final int limit;
+    private final Queue<Runnable> pending = new ArrayDeque<>();
+    private int running;
+
+    AsyncLimiter(int limit) {
+        this.limit = limit;
+    }
+
+    <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            CompletableFuture<T> started;
+            try {
+                started = task.get();
+            } catch (RuntimeException e) {
+                started = CompletableFuture.failedFuture(e);
+            }
+            started.whenComplete((value, error) -> {
+                release();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        };
+        boolean startNow;
+        synchronized (this) {
+            startNow = running < limit;
+            if (startNow) {
+                running++;
+            } else {
+                pending.add(start);
+            }
+        }
+        if (startNow) {
+            start.run();
+        }
+        return result;
+    }
+
+    private void release() {
+        Runnable next;
+        synchronized (this) {
+            next = pending.poll();
+            if (next == null) {
+                running--;
+            }
+        }
+        if (next != null) {
+            next.run();
+        }
+    }
+}
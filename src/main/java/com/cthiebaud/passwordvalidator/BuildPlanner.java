@@ -0,0 +1,708 @@
+package com.cthiebaud.passwordvalidator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.stream.events.XMLEvent;
+
+/**
+ * Builds the modules of {@code multi-module-project} in parallel shards.
+ * <p>
+ * Alternative to {@code mvn clean verify} on the aggregator written by
+ * {@code multi-module.py}, where a single broken module fails or stalls the
+ * whole build. The modules are split into shard aggregators of about the same
+ * cost, longest first: a module costs its last build time, kept in
+ * {@code .build-durations.json}, or, if it was never built, its source size
+ * times the build time per source byte of the modules that were. Each shard
+ * is written to {@code multi-module-project/shards/shard-N/pom.xml} and built
+ * with {@code mvn clean verify --fail-at-end} into the {@code build.log} next
+ * to it, {@code parallelism} shards at a time.
+ * <p>
+ * A module that fails is quarantined. A module left without a result of its
+ * own, because it was skipped or its shard timed out, is first built again in
+ * a shard of its own. The aggregator POM is then rewritten with the successful
+ * modules, the quarantined ones commented out and listed in
+ * {@code multi-module-project/quarantine.yaml}, and the aggregated Javadoc of
+ * the successful modules is generated in
+ * {@code multi-module-project/target/site/apidocs}, logged to
+ * {@code javadoc.log}.
+ * <p>
+ * Usage: {@code BuildPlanner [--shards=N] [--parallelism=N]
+ * [--timeout=SECONDS] [--mvn=COMMAND]}. A module is a directory of
+ * {@code multi-module-project} with a {@code pom.xml}, or with a single
+ * subdirectory that has one, as {@code multi-module_patch_pom_file.py}
+ * expects.
+ */
+public class BuildPlanner {
+
+    static final String PROJECT_DIR = "multi-module-project";
+    static final String SHARDS_DIR = "shards";
+    static final String QUARANTINE_FILE = "quarantine.yaml";
+    static final String DURATIONS_FILE = ".build-durations.json";
+
+    private static final String POM_NAMESPACE = "http://maven.apache.org/POM/4.0.0";
+    private static final String SCHEMA_LOCATION = POM_NAMESPACE + " https://maven.apache.org/xsd/maven-4.0.0.xsd";
+
+    private static final int DEFAULT_SHARDS = 4;
+    private static final long DEFAULT_TIMEOUT_SECONDS = 1800;
+
+    // First guess for modules never built, when no module was: 10 s per 20 KB of sources
+    private static final double DEFAULT_MILLIS_PER_BYTE = 0.5;
+
+    // Shards share the local repository; have Maven 3.9 lock it per artifact
+    private static final List<String> MAVEN_OPTIONS = List.of("-B", "-Dstyle.color=never",
+            "-Daether.syncContext.named.factory=file-lock", "-Daether.syncContext.named.nameMapper=file-gav");
+
+    // A line of the reactor summary: project label, status and, unless skipped, build time
+    private static final Pattern SUMMARY_LINE = Pattern.compile(
+            "\\[INFO] (.+?) (?:\\.+ )?(SUCCESS|FAILURE|SKIPPED)(?: \\[ *([0-9.:]+) (s|min|h)])?\\s*");
+
+    private static final XMLInputFactory XML_INPUT = createInputFactory();
+    private static final XMLOutputFactory XML_OUTPUT = XMLOutputFactory.newFactory();
+    private static final XMLEventFactory XML_EVENTS = XMLEventFactory.newFactory();
+
+    private final Path projectDir;
+    private final String mvn;
+    private final long timeoutSeconds;
+    private final DurationStore durations;
+
+    /**
+     * @param projectDir     The multi-module project directory.
+     * @param mvn            The Maven command.
+     * @param timeoutSeconds How long a single Maven run may take.
+     * @param durations      The build times of previous runs, keyed by module path.
+     */
+    public BuildPlanner(Path projectDir, String mvn, long timeoutSeconds, DurationStore durations) {
+        this.projectDir = projectDir;
+        this.mvn = mvn;
+        this.timeoutSeconds = timeoutSeconds;
+        this.durations = durations;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int shardCount = DEFAULT_SHARDS;
+        Integer parallelism = null;
+        long timeoutSeconds = DEFAULT_TIMEOUT_SECONDS;
+        String mvn = "mvn";
+        for (String arg : args) {
+            if (arg.startsWith("--shards=")) {
+                shardCount = Integer.parseInt(arg.substring("--shards=".length()));
+            } else if (arg.startsWith("--parallelism=")) {
+                parallelism = Integer.parseInt(arg.substring("--parallelism=".length()));
+            } else if (arg.startsWith("--timeout=")) {
+                timeoutSeconds = Long.parseLong(arg.substring("--timeout=".length()));
+            } else if (arg.startsWith("--mvn=")) {
+                mvn = arg.substring("--mvn=".length());
+            }
+        }
+
+        Path projectDir = Path.of(PROJECT_DIR);
+        List<Module> modules = discoverModules(projectDir);
+        if (modules.isEmpty()) {
+            System.out.println("No modules found in " + projectDir + ", run multi-module.py first.");
+            return;
+        }
+
+        DurationStore durations = DurationStore.load(Path.of(DURATIONS_FILE));
+        BuildPlanner planner = new BuildPlanner(projectDir, mvn, timeoutSeconds, durations);
+        FileUtils.deleteRecursively(projectDir.resolve(SHARDS_DIR));
+
+        ToLongFunction<Module> cost = planner.costs(modules);
+        List<Shard> shards = partition(modules, shardCount, cost);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, parallelism != null ? parallelism
+                : shards.size()), runnable -> Thread.ofPlatform().daemon().name("shard-build").unstarted(runnable));
+        long start = System.nanoTime();
+        List<ModuleResult> results;
+        try {
+            results = planner.buildAll(shards, pool);
+
+            // Give the modules that paid for another module's failure a chance of their own
+            List<Shard> retries = new ArrayList<>();
+            for (ModuleResult result : results) {
+                if (!result.status().isOwnResult() && shards.get(result.shard()).modules().size() > 1) {
+                    retries.add(new Shard(shards.size() + retries.size(), List.of(result.module()),
+                            cost.applyAsLong(result.module())));
+                }
+            }
+            if (!retries.isEmpty()) {
+                System.out.println("Building " + retries.size() + " modules again on their own...");
+                List<ModuleResult> retried = planner.buildAll(retries, pool);
+                results = new ArrayList<>(results);
+                results.removeIf(result -> retried.stream().anyMatch(r -> r.module().equals(result.module())));
+                results.addAll(retried);
+            }
+        } catch (IOException e) {
+            System.err.println("Error running Maven: " + e.getMessage());
+            return;
+        } finally {
+            pool.shutdownNow();
+        }
+
+        List<Module> built = new ArrayList<>();
+        List<ModuleResult> quarantined = new ArrayList<>();
+        for (ModuleResult result : results) {
+            if (result.status() == Status.SUCCESS) {
+                built.add(result.module());
+                if (result.durationMillis() >= 0) {
+                    durations.record(result.module().path(), result.durationMillis());
+                }
+            } else {
+                quarantined.add(result);
+            }
+        }
+        built.sort(Comparator.comparing(Module::path));
+        quarantined.sort(Comparator.comparing(result -> result.module().path()));
+        durations.save();
+        System.out.printf("Modules built in %.1f s: %d succeeded, %d quarantined%n",
+                (System.nanoTime() - start) / 1e9, built.size(), quarantined.size());
+
+        writeAggregatorPom(projectDir.resolve("pom.xml"), built,
+                quarantined.stream().map(ModuleResult::module).toList());
+        planner.writeQuarantine(quarantined);
+        if (built.isEmpty()) {
+            System.out.println("No module built, no Javadoc generated.");
+        } else if (planner.runMaven(projectDir.resolve("pom.xml"), projectDir.resolve("javadoc.log"),
+                "javadoc:aggregate@aggregate")) {
+            System.out.println("Aggregated Javadoc generated in " + projectDir.resolve("target/site/apidocs"));
+        } else {
+            System.err.println("Aggregated Javadoc failed, see " + projectDir.resolve("javadoc.log"));
+        }
+    }
+
+    /**
+     * Finds the modules of the multi-module project.
+     *
+     * @param projectDir The multi-module project directory.
+     * @return The modules, sorted by path.
+     */
+    static List<Module> discoverModules(Path projectDir) throws IOException {
+        List<Module> modules = new ArrayList<>();
+        if (!Files.isDirectory(projectDir)) {
+            return modules;
+        }
+        List<Path> directories;
+        try (Stream<Path> children = Files.list(projectDir)) {
+            directories = children.filter(Files::isDirectory)
+                    .filter(dir -> !dir.getFileName().toString().startsWith("."))
+                    .filter(dir -> !dir.getFileName().toString().equals(SHARDS_DIR))
+                    .filter(dir -> !dir.getFileName().toString().equals("target"))
+                    .sorted()
+                    .toList();
+        }
+        for (Path directory : directories) {
+            Path moduleDir = directory;
+            if (!Files.exists(directory.resolve("pom.xml"))) {
+                try (Stream<Path> children = Files.list(directory)) {
+                    List<Path> nested = children.filter(child -> Files.exists(child.resolve("pom.xml"))).toList();
+                    if (nested.size() != 1) {
+                        System.out.println("Skipping " + directory + ": no pom.xml");
+                        continue;
+                    }
+                    moduleDir = nested.get(0);
+                }
+            }
+            String path = projectDir.relativize(moduleDir).toString().replace('\\', '/');
+            try {
+                modules.add(new Module(path, reactorLabel(moduleDir.resolve("pom.xml")), sourceBytes(moduleDir)));
+            } catch (IOException | XMLStreamException e) {
+                System.out.println("Skipping " + directory + ": unreadable pom.xml (" + e.getMessage() + ")");
+            }
+        }
+        return modules;
+    }
+
+    // The name Maven gives the module in its reactor summary: <name>, or else <artifactId>
+    private static String reactorLabel(Path pom) throws IOException, XMLStreamException {
+        String name = null;
+        String artifactId = null;
+        try (InputStream input = Files.newInputStream(pom)) {
+            XMLStreamReader reader = XML_INPUT.createXMLStreamReader(input);
+            try {
+                int depth = 0;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamReader.START_ELEMENT) {
+                        depth++;
+                        if (depth == 2 && reader.getLocalName().equals("name")) {
+                            name = reader.getElementText().trim();
+                            depth--;
+                        } else if (depth == 2 && reader.getLocalName().equals("artifactId")) {
+                            artifactId = reader.getElementText().trim();
+                            depth--;
+                        }
+                    } else if (event == XMLStreamReader.END_ELEMENT) {
+                        depth--;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return name != null && !name.isEmpty() && !name.contains("${") ? name : artifactId;
+    }
+
+    private static long sourceBytes(Path moduleDir) throws IOException {
+        Path target = moduleDir.resolve("target");
+        try (Stream<Path> files = Files.walk(moduleDir)) {
+            return files.filter(file -> !file.startsWith(target))
+                    .filter(file -> file.getFileName().toString().endsWith(".java"))
+                    .filter(Files::isRegularFile)
+                    .mapToLong(file -> file.toFile().length())
+                    .sum();
+        }
+    }
+
+    /**
+     * Estimates the build time of modules, in milliseconds.
+     *
+     * @param modules The modules to build.
+     * @return The last build time of a module, or, if unknown, its source size
+     *         times the build time per byte of the modules whose time is known.
+     */
+    ToLongFunction<Module> costs(List<Module> modules) {
+        long knownMillis = 0;
+        long knownBytes = 0;
+        for (Module module : modules) {
+            OptionalLong duration = durations.lastDurationMillis(module.path());
+            if (duration.isPresent() && module.sourceBytes() > 0) {
+                knownMillis += duration.getAsLong();
+                knownBytes += module.sourceBytes();
+            }
+        }
+        double millisPerByte = knownBytes > 0 ? (double) knownMillis / knownBytes : DEFAULT_MILLIS_PER_BYTE;
+        return module -> durations.lastDurationMillis(module.path())
+                .orElse(Math.round(module.sourceBytes() * millisPerByte));
+    }
+
+    /**
+     * Splits modules into shards of about the same cost: each module, most
+     * costly first, goes to the shard with the lowest cost so far.
+     *
+     * @param modules The modules.
+     * @param shards  The number of shards wanted.
+     * @param cost    The estimated cost of a module.
+     * @return At most {@code shards} non-empty shards.
+     */
+    static List<Shard> partition(List<Module> modules, int shards, ToLongFunction<Module> cost) {
+        int count = Math.max(1, Math.min(shards, modules.size()));
+        List<List<Module>> members = new ArrayList<>();
+        long[] loads = new long[count];
+        PriorityQueue<Integer> lightest = new PriorityQueue<>(
+                Comparator.<Integer>comparingLong(i -> loads[i]).thenComparing(i -> i));
+        for (int i = 0; i < count; i++) {
+            members.add(new ArrayList<>());
+            lightest.add(i);
+        }
+        List<Module> ordered = modules.stream()
+                .sorted(Comparator.comparingLong(cost).reversed().thenComparing(Module::path))
+                .toList();
+        for (Module module : ordered) {
+            int shard = lightest.poll();
+            members.get(shard).add(module);
+            loads[shard] += cost.applyAsLong(module);
+            lightest.add(shard);
+        }
+        List<Shard> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            List<Module> shardModules = members.get(i);
+            shardModules.sort(Comparator.comparing(Module::path));
+            result.add(new Shard(i, List.copyOf(shardModules), loads[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Builds shards, as many at a time as the pool has threads.
+     *
+     * @param shards The shards.
+     * @param pool   The pool the builds wait on.
+     * @return The result of every module of every shard.
+     * @throws IOException If Maven could not be started.
+     */
+    List<ModuleResult> buildAll(List<Shard> shards, ExecutorService pool) throws IOException,
+            InterruptedException {
+        List<Future<List<ModuleResult>>> futures = new ArrayList<>();
+        for (Shard shard : shards) {
+            System.out.printf("Shard %d: %d modules, about %.0f s: %s%n", shard.index(), shard.modules().size(),
+                    shard.estimatedMillis() / 1e3, shard.modules().stream().map(Module::path).toList());
+            futures.add(pool.submit(() -> build(shard)));
+        }
+        List<ModuleResult> results = new ArrayList<>();
+        for (Future<List<ModuleResult>> future : futures) {
+            try {
+                results.addAll(future.get());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException io) {
+                    throw io;
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Builds one shard.
+     *
+     * @param shard The shard.
+     * @return The result of each of its modules.
+     */
+    List<ModuleResult> build(Shard shard) throws IOException, InterruptedException, XMLStreamException {
+        Path shardDir = projectDir.resolve(SHARDS_DIR).resolve("shard-" + shard.index());
+        Path pom = shardDir.resolve("pom.xml");
+        Path log = shardDir.resolve("build.log");
+        Files.createDirectories(shardDir);
+        writeShardPom(pom, shard);
+
+        long startMillis = System.currentTimeMillis();
+        long start = System.nanoTime();
+        boolean succeeded = runMaven(pom, log, "clean", "verify", "--fail-at-end");
+        Map<String, ModuleResult> summary = readReactorSummary(log, shard);
+
+        List<ModuleResult> results = new ArrayList<>();
+        int failed = 0;
+        for (Module module : shard.modules()) {
+            ModuleResult result = summary.get(module.path());
+            if (result == null) {
+                // No summary line, e.g. after a timeout: a packaged jar still tells a built module
+                Status status = hasJarSince(projectDir.resolve(module.path()), startMillis)
+                        ? Status.SUCCESS
+                        : Status.NO_RESULT;
+                result = new ModuleResult(module, shard.index(), status, -1);
+            }
+            if (result.status() != Status.SUCCESS) {
+                failed++;
+            }
+            results.add(result);
+        }
+        System.out.printf("Shard %d %s in %.1f s: %d of %d modules failed, see %s%n", shard.index(),
+                succeeded ? "built" : "failed", (System.nanoTime() - start) / 1e9, failed, shard.modules().size(),
+                log);
+        return results;
+    }
+
+    /**
+     * Runs Maven on a POM, its output going to a log file.
+     *
+     * @return Whether Maven completed successfully in time.
+     */
+    boolean runMaven(Path pom, Path log, String... goals) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(mvn);
+        command.addAll(MAVEN_OPTIONS);
+        command.add("-f");
+        command.add(pom.toAbsolutePath().toString());
+        command.addAll(List.of(goals));
+
+        Process process = new ProcessBuilder(command)
+                .directory(pom.toAbsolutePath().getParent().toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        process.getOutputStream().close();
+        if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+            // mvn is a script: its JVM must go too
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+            process.waitFor();
+            Files.writeString(log, "\nBuildPlanner: timed out after " + timeoutSeconds + " s\n",
+                    StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            System.out.println("Maven timed out after " + timeoutSeconds + " s on " + pom);
+            return false;
+        }
+        return process.exitValue() == 0;
+    }
+
+    /**
+     * Reads the reactor summary at the end of a shard log.
+     *
+     * @return The results found, keyed by module path.
+     */
+    static Map<String, ModuleResult> readReactorSummary(Path log, Shard shard) throws IOException {
+        Map<String, ModuleResult> results = new HashMap<>();
+        if (!Files.exists(log)) {
+            return results;
+        }
+        boolean inSummary = false;
+        for (String line : Files.readAllLines(log, StandardCharsets.UTF_8)) {
+            if (line.contains("Reactor Summary")) {
+                inSummary = true;
+                continue;
+            }
+            Matcher matcher = SUMMARY_LINE.matcher(line);
+            if (!inSummary || !matcher.matches()) {
+                continue;
+            }
+            // The label may be followed by the version; the longest matching name wins
+            String label = matcher.group(1);
+            Module match = null;
+            for (Module module : shard.modules()) {
+                String name = module.label();
+                if (name != null && (label.equals(name) || label.startsWith(name + " "))
+                        && (match == null || name.length() > match.label().length())) {
+                    match = module;
+                }
+            }
+            if (match != null) {
+                long millis = matcher.group(3) != null ? parseMillis(matcher.group(3), matcher.group(4)) : -1;
+                results.put(match.path(), new ModuleResult(match, shard.index(),
+                        Status.valueOf(matcher.group(2)), millis));
+            }
+        }
+        return results;
+    }
+
+    // Maven prints "2.345 s", "01:02 min" (minutes and seconds) or "01:02 h" (hours and minutes)
+    private static long parseMillis(String value, String unit) {
+        if (unit.equals("s")) {
+            return Math.round(Double.parseDouble(value) * 1000);
+        }
+        String[] parts = value.split(":");
+        long first = Long.parseLong(parts[0]);
+        long second = parts.length > 1 ? Long.parseLong(parts[1]) : 0;
+        return unit.equals("min") ? (first * 60 + second) * 1000 : (first * 60 + second) * 60_000;
+    }
+
+    private static boolean hasJarSince(Path moduleDir, long millis) throws IOException {
+        Path target = moduleDir.resolve("target");
+        if (!Files.isDirectory(target)) {
+            return false;
+        }
+        try (Stream<Path> files = Files.list(target)) {
+            return files.anyMatch(file -> file.getFileName().toString().endsWith(".jar")
+                    && file.toFile().lastModified() >= millis);
+        }
+    }
+
+    /**
+     * Writes the aggregator POM of a shard, its modules relative to the shard
+     * directory.
+     */
+    static void writeShardPom(Path pom, Shard shard) throws IOException, XMLStreamException {
+        try (Writer out = Files.newBufferedWriter(pom, StandardCharsets.UTF_8)) {
+            XMLStreamWriter writer = XML_OUTPUT.createXMLStreamWriter(out);
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.writeCharacters("\n");
+            writer.writeStartElement("project");
+            writer.writeDefaultNamespace(POM_NAMESPACE);
+            writer.writeNamespace("xsi", "http://www.w3.org/2001/XMLSchema-instance");
+            writer.writeAttribute("xsi", "http://www.w3.org/2001/XMLSchema-instance", "schemaLocation",
+                    SCHEMA_LOCATION);
+            writeElement(writer, 1, "modelVersion", "4.0.0");
+            writeElement(writer, 1, "groupId", "com.cthiebaud");
+            writeElement(writer, 1, "artifactId", "password-validator-acceptance-shard-" + shard.index());
+            writeElement(writer, 1, "version", "0.0.0-SNAPSHOT");
+            writeElement(writer, 1, "packaging", "pom");
+            writer.writeCharacters("\n    ");
+            writer.writeStartElement("modules");
+            for (Module module : shard.modules()) {
+                writeElement(writer, 2, "module", "../../" + module.path());
+            }
+            writer.writeCharacters("\n    ");
+            writer.writeEndElement();
+            writer.writeCharacters("\n");
+            writer.writeEndElement();
+            writer.writeCharacters("\n");
+            writer.writeEndDocument();
+            writer.close();
+        }
+    }
+
+    private static void writeElement(XMLStreamWriter writer, int depth, String name, String text)
+            throws XMLStreamException {
+        writer.writeCharacters("\n" + "    ".repeat(depth));
+        writer.writeStartElement(name);
+        writer.writeCharacters(text);
+        writer.writeEndElement();
+    }
+
+    /**
+     * Rewrites the {@code <modules>} of the aggregator POM, streaming the rest
+     * of it through unchanged.
+     *
+     * @param pom         The aggregator POM.
+     * @param modules     The modules to build.
+     * @param quarantined The modules to leave commented out.
+     */
+    static void writeAggregatorPom(Path pom, List<Module> modules, List<Module> quarantined)
+            throws IOException, XMLStreamException {
+        Path temp = Files.createTempFile(pom.toAbsolutePath().getParent(), "pom", ".tmp");
+        try {
+            try (Reader in = Files.newBufferedReader(pom, StandardCharsets.UTF_8);
+                    OutputStream out = Files.newOutputStream(temp)) {
+                XMLEventReader reader = XML_INPUT.createXMLEventReader(in);
+                XMLEventWriter writer = XML_OUTPUT.createXMLEventWriter(out, "UTF-8");
+                int depth = 0;
+                boolean inModules = false;
+                boolean written = false;
+                while (reader.hasNext()) {
+                    XMLEvent event = reader.nextEvent();
+                    if (event.isStartElement()) {
+                        depth++;
+                        if (depth == 2 && event.asStartElement().getName().getLocalPart().equals("modules")) {
+                            inModules = true;
+                            writer.add(event);
+                            writeModules(writer, modules, quarantined);
+                            written = true;
+                            continue;
+                        }
+                    } else if (event.isEndElement()) {
+                        depth--;
+                        if (inModules && depth == 1) {
+                            inModules = false;
+                        } else if (depth == 0 && !written) {
+                            // No <modules> yet: add one at the end of the project
+                            writer.add(XML_EVENTS.createCharacters("    "));
+                            writer.add(XML_EVENTS.createStartElement("", POM_NAMESPACE, "modules"));
+                            writeModules(writer, modules, quarantined);
+                            writer.add(XML_EVENTS.createEndElement("", POM_NAMESPACE, "modules"));
+                            writer.add(XML_EVENTS.createCharacters("\n"));
+                        }
+                    }
+                    if (!inModules) {
+                        writer.add(event);
+                    }
+                    if (event.isStartDocument()) {
+                        // Whitespace outside the root element is not reported
+                        writer.add(XML_EVENTS.createCharacters("\n"));
+                    }
+                }
+                writer.close();
+                reader.close();
+            }
+            Files.move(temp, pom, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        System.out.printf("Aggregator POM %s: %d modules, %d commented out%n", pom, modules.size(),
+                quarantined.size());
+    }
+
+    // The content of <modules>, up to the indentation of its end tag
+    private static void writeModules(XMLEventWriter writer, List<Module> modules, List<Module> quarantined)
+            throws XMLStreamException {
+        for (Module module : modules) {
+            writer.add(XML_EVENTS.createCharacters("\n        "));
+            writer.add(XML_EVENTS.createStartElement("", POM_NAMESPACE, "module"));
+            writer.add(XML_EVENTS.createCharacters(module.path()));
+            writer.add(XML_EVENTS.createEndElement("", POM_NAMESPACE, "module"));
+        }
+        for (Module module : quarantined) {
+            writer.add(XML_EVENTS.createCharacters("\n        "));
+            writer.add(XML_EVENTS.createComment("module>" + module.path() + "</module"));
+        }
+        writer.add(XML_EVENTS.createCharacters("\n    "));
+    }
+
+    /**
+     * Lists the quarantined modules in {@code quarantine.yaml}, or removes the
+     * file when there are none.
+     */
+    void writeQuarantine(List<ModuleResult> quarantined) throws IOException {
+        Path file = projectDir.resolve(QUARANTINE_FILE);
+        if (quarantined.isEmpty()) {
+            Files.deleteIfExists(file);
+            return;
+        }
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (ModuleResult result : quarantined) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("module", result.module().path());
+            entry.put("status", result.status().name());
+            entry.put("log", SHARDS_DIR + "/shard-" + result.shard() + "/build.log");
+            entries.add(entry);
+        }
+        YAMLFactory yamlFactory = new YAMLFactory()
+                .enable(YAMLGenerator.Feature.MINIMIZE_QUOTES)
+                .disable(YAMLGenerator.Feature.SPLIT_LINES);
+        new ObjectMapper(yamlFactory).writeValue(file.toFile(), Map.of("quarantined", entries));
+        System.out.println("Quarantined modules written to " + file);
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        // POMs never need a DTD; refuse external entities
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /** How a module's build ended. */
+    public enum Status {
+        SUCCESS, FAILURE, SKIPPED, NO_RESULT;
+
+        /** @return Whether the status comes from the module's own build. */
+        boolean isOwnResult() {
+            return this == SUCCESS || this == FAILURE;
+        }
+    }
+
+    /**
+     * A module of the multi-module project.
+     *
+     * @param path        The module directory, relative to the project directory.
+     * @param label       The name of the module in Maven's reactor summary.
+     * @param sourceBytes The size of its Java sources.
+     */
+    public record Module(String path, String label, long sourceBytes) {
+    }
+
+    /**
+     * A shard aggregator.
+     *
+     * @param index           The shard number.
+     * @param modules         Its modules, sorted by path.
+     * @param estimatedMillis The sum of their estimated build times.
+     */
+    public record Shard(int index, List<Module> modules, long estimatedMillis) {
+    }
+
+    /**
+     * The build of a module.
+     *
+     * @param module         The module.
+     * @param shard          The shard it was built in.
+     * @param status         How it ended.
+     * @param durationMillis Its build time from the reactor summary, or -1.
+     */
+    public record ModuleResult(Module module, int shard, Status status, long durationMillis) {
+    }
+}
@@ -0,0 +1,559 @@
+package com.cthiebaud.passwordvalidator;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Differential fuzzer comparing every student validator with a reference
+ * implementation.
+ * <p>
+ * Inputs come from a {@link FuzzInputGenerator} and are processed in batches.
+ * Every batch is derived from the seed and its index only, so a run is
+ * reproducible whatever the parallelism. Workers pull batches from a shared
+ * counter; each has its own instance of every validator, since
+ * implementations need not be thread-safe, and reuses its batch arrays. An
+ * input on which a student validator disagrees with the reference, or throws,
+ * is a divergence. The first divergences of each implementation are shrunk to
+ * minimal counterexamples and written to {@value #RESULTS_FILE}.
+ * <p>
+ * A watchdog abandons a worker stuck in one implementation for longer than the
+ * batch timeout, counting the time spent shrinking a counterexample apart from
+ * the pass over the batch it interrupts. That implementation is disabled for the rest of the run and
+ * a new worker takes over, starting with the implementations the abandoned
+ * worker had not yet run on its batch.
+ * <p>
+ * Usage: {@code DifferentialFuzzer [--reference=JAR] [--inputs=N] [--batch=N]
+ * [--parallelism=N] [--seed=N] [--timeout=S] [project]}. The {@code
+ * PasswordValidator} interface comes from the jar downloaded to {@code target}
+ * by {@code test_all.sh} or {@link AcceptanceRunner}, and so does the reference
+ * implementation unless {@code --reference} names another jar, such as
+ * {@code com.cthiebaud.password-validator-impl}. {@code project} keeps only
+ * the student jars whose name contains it.
+ */
+public class DifferentialFuzzer {
+
+    static final String RESULTS_FILE = "fuzz_counterexamples.yaml";
+
+    private static final long DEFAULT_INPUTS = 10_000_000;
+    private static final int DEFAULT_BATCH_SIZE = 4096;
+    private static final int DEFAULT_TIMEOUT_SECONDS = 10;
+
+    // Counterexamples kept per implementation, and calls allowed to shrink one
+    private static final int MAX_COUNTEREXAMPLES = 10;
+    private static final int MAX_SHRINK_CALLS = 5_000;
+
+    private static final long WATCHDOG_PERIOD_MILLIS = 100;
+
+    // Outcomes of a call
+    private static final byte INVALID = 0;
+    private static final byte VALID = 1;
+    private static final byte THREW = 2;
+
+    private final Target reference;
+    private final List<Target> students;
+    private final long inputs;
+    private final int batchSize;
+    private final long seed;
+    private final Duration batchTimeout;
+
+    private final long batches;
+    private final AtomicLong nextBatch = new AtomicLong();
+    private final LongAdder[] divergences;
+    private final LongAdder[] errors;
+    private final LongAdder[] compared;
+    private final AtomicReferenceArray<String> hungOn;
+    private final List<Map<String, Counterexample>> counterexamples = new ArrayList<>();
+    private final List<Worker> workers = new ArrayList<>();
+
+    /**
+     * @param reference    The reference implementation.
+     * @param students     The student implementations.
+     * @param inputs       The number of inputs given to every implementation.
+     * @param batchSize    The number of inputs per batch.
+     * @param seed         The seed the inputs derive from.
+     * @param batchTimeout The time an implementation may take on one batch.
+     */
+    public DifferentialFuzzer(Target reference, List<Target> students, long inputs, int batchSize, long seed,
+            Duration batchTimeout) {
+        this.reference = reference;
+        this.students = List.copyOf(students);
+        this.inputs = inputs;
+        this.batchSize = Math.max(1, batchSize);
+        this.seed = seed;
+        this.batchTimeout = batchTimeout;
+        this.batches = (inputs + this.batchSize - 1) / this.batchSize;
+
+        int count = students.size();
+        divergences = new LongAdder[count];
+        errors = new LongAdder[count];
+        compared = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            divergences[i] = new LongAdder();
+            errors[i] = new LongAdder();
+            compared[i] = new LongAdder();
+            counterexamples.add(new ConcurrentHashMap<>());
+        }
+        hungOn = new AtomicReferenceArray<>(count);
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Parse arguments
+        String project = null;
+        String referenceArg = null;
+        long inputs = DEFAULT_INPUTS;
+        int batchSize = DEFAULT_BATCH_SIZE;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        long seed = System.nanoTime();
+        int timeoutSeconds = DEFAULT_TIMEOUT_SECONDS;
+        for (String arg : args) {
+            if (arg.startsWith("--reference=")) {
+                referenceArg = arg.substring("--reference=".length());
+            } else if (arg.startsWith("--inputs=")) {
+                inputs = Long.parseLong(arg.substring("--inputs=".length()).replace("_", ""));
+            } else if (arg.startsWith("--batch=")) {
+                batchSize = Integer.parseInt(arg.substring("--batch=".length()));
+            } else if (arg.startsWith("--parallelism=")) {
+                parallelism = Integer.parseInt(arg.substring("--parallelism=".length()));
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            } else if (arg.startsWith("--timeout=")) {
+                timeoutSeconds = Integer.parseInt(arg.substring("--timeout=".length()));
+            } else {
+                project = arg;
+            }
+        }
+
+        Optional<Path> apiJar = AcceptanceRunner.findReferenceJar();
+        if (apiJar.isEmpty()) {
+            System.err.println("Error: JAR not found in " + AcceptanceRunner.TARGET_DIR
+                    + ", run test_all.sh or AcceptanceRunner first. Exiting.");
+            return;
+        }
+        Path referenceJar = referenceArg != null ? Path.of(referenceArg) : apiJar.get();
+
+        Target reference;
+        try {
+            reference = Target.load(apiJar.get(), referenceJar);
+        } catch (Exception e) {
+            System.err.println("Error: no usable reference implementation in " + referenceJar + ": " + e);
+            return;
+        }
+        System.out.println("Reference implementation: " + reference.implementation().getName() + " ("
+                + referenceJar.getFileName() + ")");
+
+        List<Target> students = new ArrayList<>();
+        for (Path studentJar : AcceptanceRunner.findStudentJars(Path.of(AcceptanceRunner.DOWNLOADED_DIR), project)) {
+            if (studentJar.toAbsolutePath().equals(referenceJar.toAbsolutePath())) {
+                continue;
+            }
+            try {
+                students.add(Target.load(apiJar.get(), studentJar));
+            } catch (Exception | LinkageError e) {
+                System.out.println("Skipping " + studentJar.getFileName() + ": " + e);
+            }
+        }
+        if (students.isEmpty()) {
+            System.out.println("No student implementation found in " + AcceptanceRunner.DOWNLOADED_DIR + ".");
+            return;
+        }
+
+        System.out.printf("Fuzzing %d implementations with %,d inputs each (seed %d)%n", students.size(), inputs,
+                seed);
+        DifferentialFuzzer fuzzer = new DifferentialFuzzer(reference, students, inputs, batchSize, seed,
+                Duration.ofSeconds(timeoutSeconds));
+        long start = System.nanoTime();
+        Map<String, FuzzResult> results = fuzzer.run(parallelism);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        results.forEach((jar, result) -> System.out.printf("%,14d divergences  %s%s%n", result.divergences(), jar,
+                result.hungOn() != null ? "  (hung)" : ""));
+        System.out.printf("Done in %,d ms%n", elapsedMillis);
+        writeResults(reference, referenceJar, seed, inputs, results, RESULTS_FILE);
+    }
+
+    /**
+     * Runs the whole campaign.
+     *
+     * @param parallelism The number of worker threads.
+     * @return The results keyed by student jar file name, in name order.
+     */
+    public Map<String, FuzzResult> run(int parallelism) throws InterruptedException {
+        ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> Thread
+                .ofPlatform().daemon().name("fuzz-watchdog").unstarted(runnable));
+        try {
+            synchronized (workers) {
+                for (int i = 0; i < Math.max(1, parallelism); i++) {
+                    startWorker(-1, 0);
+                }
+            }
+            watchdog.scheduleAtFixedRate(this::enforceTimeout, WATCHDOG_PERIOD_MILLIS, WATCHDOG_PERIOD_MILLIS,
+                    TimeUnit.MILLISECONDS);
+
+            // Abandoned workers are replaced before being completed, so wait until no new one shows up
+            int waited = 0;
+            while (true) {
+                List<CompletableFuture<Void>> done;
+                synchronized (workers) {
+                    if (waited == workers.size()) {
+                        break;
+                    }
+                    done = workers.stream().map(Worker::done).toList();
+                }
+                CompletableFuture.allOf(done.toArray(CompletableFuture[]::new)).join();
+                waited = done.size();
+            }
+        } finally {
+            watchdog.shutdownNow();
+        }
+
+        Map<String, FuzzResult> results = new TreeMap<>();
+        for (int i = 0; i < students.size(); i++) {
+            List<Counterexample> shortest = counterexamples.get(i).values().stream()
+                    .sorted(Comparator.comparingInt((Counterexample example) -> example.input().length())
+                            .thenComparing(Counterexample::input))
+                    .toList();
+            results.put(students.get(i).name(), new FuzzResult(students.get(i).implementation().getName(),
+                    compared[i].sum(), divergences[i].sum(), errors[i].sum(), hungOn.get(i), shortest));
+        }
+        return results;
+    }
+
+    // Called with the workers lock held. A replacement worker first runs batch
+    // resumeBatch from student resumeStudent on; -1 for none
+    private void startWorker(long resumeBatch, int resumeStudent) {
+        Worker worker;
+        try {
+            worker = new Worker(resumeBatch, resumeStudent);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot instantiate validators", e);
+        }
+        workers.add(worker);
+        worker.thread.start();
+    }
+
+    // Abandon workers stuck in one implementation, and disable it
+    private void enforceTimeout() {
+        long now = System.nanoTime();
+        synchronized (workers) {
+            for (Worker worker : List.copyOf(workers)) {
+                int student = worker.current;
+                if (student < 0 || worker.done.isDone() || now - worker.passStart < batchTimeout.toNanos()) {
+                    continue;
+                }
+                worker.abandoned = true;
+                hungOn.compareAndSet(student, null, worker.batch[worker.position]);
+                System.out.println("Disabling " + students.get(student).name() + ": no answer after "
+                        + batchTimeout.toSeconds() + " s");
+                worker.thread.interrupt();
+                // The other students still get the inputs of the interrupted batch
+                startWorker(student + 1 < students.size() ? worker.batchIndex : -1, student + 1);
+                worker.done.complete(null);
+            }
+        }
+    }
+
+    // Batch inputs depend only on the seed and the batch index
+    private static long batchSeed(long seed, long batch) {
+        long z = seed + batch * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static byte outcome(ValidatorLoader.Validator validator, String input) {
+        try {
+            return validator.isValid(input) ? VALID : INVALID;
+        } catch (RuntimeException | StackOverflowError | LinkageError | AssertionError e) {
+            return THREW;
+        }
+    }
+
+    // Runs batches until there are none left, with its own validator instances
+    private class Worker implements Runnable {
+        private final ValidatorLoader.Validator referenceValidator;
+        private final ValidatorLoader.Validator[] studentValidators;
+        private final FuzzInputGenerator generator = new FuzzInputGenerator();
+        private final String[] batch = new String[batchSize];
+        private final byte[] expected = new byte[batchSize];
+        private final Thread thread;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private final long resumeBatch;
+        private final int resumeStudent;
+
+        // What the worker is doing, for the watchdog
+        private volatile long batchIndex;
+        private volatile int current = -1;
+        private volatile long passStart;
+        private volatile int position;
+        private volatile boolean abandoned;
+
+        Worker(long resumeBatch, int resumeStudent) throws ReflectiveOperationException {
+            this.resumeBatch = resumeBatch;
+            this.resumeStudent = resumeStudent;
+            referenceValidator = ValidatorLoader.of(reference.implementation());
+            studentValidators = new ValidatorLoader.Validator[students.size()];
+            for (int i = 0; i < studentValidators.length; i++) {
+                studentValidators[i] = ValidatorLoader.of(students.get(i).implementation());
+            }
+            thread = Thread.ofPlatform().daemon().name("fuzz-worker-" + workers.size()).unstarted(this);
+        }
+
+        CompletableFuture<Void> done() {
+            return done;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (resumeBatch >= 0) {
+                    runBatch(resumeBatch, resumeStudent);
+                }
+                long index;
+                while (!abandoned && (index = nextBatch.getAndIncrement()) < batches) {
+                    runBatch(index, 0);
+                }
+            } catch (RuntimeException | Error e) {
+                System.err.println("Fuzz worker failed: " + e);
+            } finally {
+                done.complete(null);
+            }
+        }
+
+        private void runBatch(long index, int fromStudent) {
+            batchIndex = index;
+            int size = (int) Math.min(batchSize, inputs - index * batchSize);
+            SplittableRandom random = new SplittableRandom(batchSeed(seed, index));
+            for (int i = 0; i < size; i++) {
+                batch[i] = generator.next(random);
+                expected[i] = outcome(referenceValidator, batch[i]);
+            }
+
+            for (int student = fromStudent; student < studentValidators.length && !abandoned; student++) {
+                if (hungOn.get(student) != null) {
+                    continue;
+                }
+                ValidatorLoader.Validator validator = studentValidators[student];
+                passStart = System.nanoTime();
+                current = student;
+                int count = 0;
+                for (int i = 0; i < size; i++) {
+                    position = i;
+                    if (expected[i] == THREW) {
+                        continue; // Nothing to compare with
+                    }
+                    count++;
+                    byte actual = outcome(validator, batch[i]);
+                    if (actual != expected[i]) {
+                        divergence(student, batch[i], actual);
+                    }
+                }
+                current = -1;
+                compared[student].add(count);
+            }
+        }
+
+        private void divergence(int student, String input, byte actual) {
+            if (abandoned) {
+                return; // Most likely the interrupt of the watchdog
+            }
+            divergences[student].increment();
+            if (actual == THREW) {
+                errors[student].increment();
+            }
+            Map<String, Counterexample> examples = counterexamples.get(student);
+            if (examples.size() >= MAX_COUNTEREXAMPLES) {
+                return;
+            }
+            // Shrinking has a batch timeout of its own and does not count against the pass
+            long pass = passStart;
+            long shrinkStart = System.nanoTime();
+            passStart = shrinkStart;
+            String shrunk = shrink(studentValidators[student], input);
+            byte shrunkExpected = outcome(referenceValidator, shrunk);
+            byte shrunkActual = outcome(studentValidators[student], shrunk);
+            passStart = pass + (System.nanoTime() - shrinkStart);
+            examples.putIfAbsent(shrunk, new Counterexample(shrunk, shrunkExpected == VALID,
+                    describe(studentValidators[student], shrunk, shrunkActual),
+                    shrunk.equals(input) ? null : input));
+        }
+
+        // Greedy delta debugging: drop chunks of halving size, then simplify
+        // the remaining characters, as long as the implementations still disagree
+        private String shrink(ValidatorLoader.Validator student, String input) {
+            int[] calls = { 0 };
+            String smallest = input;
+            for (int chunk = Math.max(1, smallest.length() / 2); chunk >= 1; chunk /= 2) {
+                for (int start = 0; start + chunk <= smallest.length() && calls[0] < MAX_SHRINK_CALLS;) {
+                    String candidate = smallest.substring(0, start) + smallest.substring(start + chunk);
+                    if (stillDiverges(student, candidate, calls)) {
+                        smallest = candidate;
+                    } else {
+                        start += chunk;
+                    }
+                }
+            }
+            char[] chars = smallest.toCharArray();
+            for (int i = 0; i < chars.length && calls[0] < MAX_SHRINK_CALLS; i++) {
+                char simple = simplest(chars[i]);
+                if (simple != chars[i]) {
+                    char original = chars[i];
+                    chars[i] = simple;
+                    if (!stillDiverges(student, new String(chars), calls)) {
+                        chars[i] = original;
+                    }
+                }
+            }
+            return new String(chars);
+        }
+
+        private boolean stillDiverges(ValidatorLoader.Validator student, String candidate, int[] calls) {
+            calls[0]++;
+            byte expectedOutcome = outcome(referenceValidator, candidate);
+            return expectedOutcome != THREW && outcome(student, candidate) != expectedOutcome;
+        }
+    }
+
+    // The most ordinary character of the same class
+    private static char simplest(char c) {
+        if (Character.isDigit(c)) {
+            return '0';
+        } else if (Character.isUpperCase(c)) {
+            return 'A';
+        } else if (Character.isLetter(c)) {
+            return 'a';
+        }
+        return c;
+    }
+
+    private static String describe(ValidatorLoader.Validator validator, String input, byte actual) {
+        if (actual != THREW) {
+            return Boolean.toString(actual == VALID);
+        }
+        try {
+            validator.isValid(input);
+            return "threw";
+        } catch (RuntimeException | StackOverflowError | LinkageError | AssertionError e) {
+            return e.toString();
+        }
+    }
+
+    /**
+     * Writes the results to a YAML file.
+     *
+     * @param reference    The reference implementation.
+     * @param referenceJar The jar it was loaded from.
+     * @param seed         The seed of the run.
+     * @param inputs       The number of inputs per implementation.
+     * @param results      The results keyed by jar file name.
+     * @param outputPath   The path of the output YAML file.
+     */
+    static void writeResults(Target reference, Path referenceJar, long seed, long inputs,
+            Map<String, FuzzResult> results, String outputPath) {
+        try {
+            YAMLFactory yamlFactory = new YAMLFactory()
+                    .enable(YAMLGenerator.Feature.MINIMIZE_QUOTES)
+                    .disable(YAMLGenerator.Feature.SPLIT_LINES);
+            ObjectMapper yamlMapper = new ObjectMapper(yamlFactory);
+            yamlMapper.setDefaultPropertyInclusion(JsonInclude.Include.NON_NULL);
+
+            Map<String, Object> root = new LinkedHashMap<>();
+            root.put("reference", reference.implementation().getName() + " (" + referenceJar.getFileName() + ")");
+            root.put("seed", seed);
+            root.put("inputs", inputs);
+            root.put("results", results);
+            yamlMapper.writeValue(new File(outputPath), root);
+
+            System.out.println("Fuzzing results written to YAML file: " + outputPath);
+        } catch (IOException e) {
+            System.out.println("Error writing to YAML file.");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * An implementation under test, loaded together with the jar providing the
+     * {@code PasswordValidator} interface. The loader stays open for the life
+     * of the JVM.
+     *
+     * @param name           The jar file name.
+     * @param implementation The implementation class.
+     */
+    public record Target(String name, Class<?> implementation) {
+
+        /**
+         * @param apiJar The reference jar providing the interface.
+         * @param jar    The jar providing the implementation; may be {@code apiJar}.
+         * @return The loaded implementation.
+         * @throws IllegalStateException When the jar has no usable implementation.
+         */
+        static Target load(Path apiJar, Path jar) throws Exception {
+            URL[] urls = apiJar.equals(jar)
+                    ? new URL[] { apiJar.toUri().toURL() }
+                    : new URL[] { apiJar.toUri().toURL(), jar.toUri().toURL() };
+            // Parent is the platform loader so nothing from this module leaks in
+            URLClassLoader loader = new URLClassLoader(jar.getFileName().toString(), urls,
+                    ClassLoader.getPlatformClassLoader());
+            try {
+                Class<?> implementation = ValidatorLoader.findImplementation(loader, jar)
+                        .orElseThrow(() -> new IllegalStateException("no "
+                                + ValidatorLoader.PASSWORD_VALIDATOR + " implementation found"));
+                ValidatorLoader.of(implementation); // Fail now rather than in every worker
+                return new Target(jar.getFileName().toString(), implementation);
+            } catch (Exception | LinkageError e) {
+                loader.close();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * A shrunk input on which an implementation disagrees with the reference.
+     *
+     * @param input    The shrunk input.
+     * @param expected What the reference answers.
+     * @param actual   What the implementation answers, or what it threw.
+     * @param original The generated input it was shrunk from, when different.
+     */
+    public record Counterexample(String input, boolean expected, String actual, String original) {
+    }
+
+    /**
+     * Result of fuzzing one implementation.
+     *
+     * @param implementation  The implementation class name.
+     * @param compared        The inputs compared with the reference.
+     * @param divergences     The inputs on which it disagreed with the reference.
+     * @param errors          The divergences where it threw.
+     * @param hungOn          The input it was working on when disabled for
+     *                        exceeding the batch timeout, if any.
+     * @param counterexamples The shortest shrunk counterexamples found.
+     */
+    public record FuzzResult(String implementation, long compared, long divergences, long errors, String hungOn,
+            List<Counterexample> counterexamples) {
+    }
+}
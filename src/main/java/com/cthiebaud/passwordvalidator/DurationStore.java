@@ -0,0 +1,86 @@
+package com.cthiebaud.passwordvalidator;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Small persistent store of the last duration of each keyed task.
+ * <p>
+ * Each user keeps its own file and picks its keys: {@link ExecutionScheduler}
+ * records student jar runs by project, {@link BuildPlanner} module builds by
+ * module path.
+ */
+public class DurationStore {
+
+    private final Path path;
+    private final Map<String, Long> durations;
+
+    private DurationStore(Path path, Map<String, Long> durations) {
+        this.path = path;
+        this.durations = new ConcurrentHashMap<>(durations);
+    }
+
+    /**
+     * Loads the store; a missing or unreadable file yields an empty store.
+     *
+     * @param path The store file.
+     * @return The loaded store.
+     */
+    public static DurationStore load(Path path) {
+        if (!Files.exists(path)) {
+            return new DurationStore(path, Map.of());
+        }
+        try {
+            Map<String, Long> durations = new ObjectMapper().readValue(path.toFile(),
+                    new TypeReference<Map<String, Long>>() {
+                    });
+            return new DurationStore(path, durations);
+        } catch (IOException e) {
+            System.out.println("Error reading " + path + ", starting from scratch: " + e.getMessage());
+            return new DurationStore(path, Map.of());
+        }
+    }
+
+    /**
+     * @param key The key the duration was recorded under.
+     * @return The most recent duration recorded under the key, if known.
+     */
+    public OptionalLong lastDurationMillis(String key) {
+        Long duration = durations.get(key);
+        return duration != null ? OptionalLong.of(duration) : OptionalLong.empty();
+    }
+
+    /**
+     * Records a duration, replacing the previous one.
+     *
+     * @param key            The key.
+     * @param durationMillis The wall-clock duration.
+     */
+    public void record(String key, long durationMillis) {
+        durations.put(key, durationMillis);
+    }
+
+    /**
+     * Writes the store to disk.
+     */
+    public void save() throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), new TreeMap<>(durations));
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.cthiebaud.passwordvalidator;
+
+import com.cthiebaud.passwordvalidator.AcceptanceRunner.AcceptanceResult;
+import com.cthiebaud.passwordvalidator.AcceptanceRunner.CheckResult;
+import com.cthiebaud.passwordvalidator.AcceptanceRunner.Outcome;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs acceptance checks under a per-jar wall-clock and CPU budget.
+ * <p>
+ * Each run gets its own daemon thread. A watchdog interrupts runs that exceed
+ * either budget and abandons them: their slot is given to the next jar and
+ * they are reported as {@link Outcome#TIMEOUT}. A thread that ignores the
+ * interrupt keeps running in the background until the JVM exits; its class
+ * loader is closed once it returns. The CPU budget covers the run's own thread,
+ * not threads it starts.
+ * <p>
+ * Jars are started longest first, according to the durations of previous runs
+ * kept in a {@link DurationStore} by project, so that the slowest jars do not
+ * end up alone at the tail of a parallel run. Jars without history go first.
+ */
+public class ExecutionScheduler {
+
+    // How often the watchdog checks the running jars
+    private static final long WATCHDOG_PERIOD_MILLIS = 50;
+
+    private final int parallelism;
+    private final Duration wallClockBudget;
+    private final Duration cpuBudget;
+    private final DurationStore durations;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    /**
+     * @param parallelism     The maximum number of concurrent runs.
+     * @param wallClockBudget The wall-clock time a run may take.
+     * @param cpuBudget       The CPU time a run's thread may use.
+     * @param durations       The durations of previous runs, keyed by
+     *                        {@link #projectKey(Path)}; updated by
+     *                        {@link #runAll(Path, List)}.
+     */
+    public ExecutionScheduler(int parallelism, Duration wallClockBudget, Duration cpuBudget,
+            DurationStore durations) {
+        this.parallelism = Math.max(1, parallelism);
+        this.wallClockBudget = wallClockBudget;
+        this.cpuBudget = cpuBudget;
+        this.durations = durations;
+    }
+
+    /**
+     * Orders jars longest first according to their previous durations.
+     *
+     * @param jars The jars to run.
+     * @return The jars in start order.
+     */
+    public List<Path> schedule(List<Path> jars) {
+        return jars.stream()
+                .sorted(Comparator.comparingLong((Path jar) -> durations.lastDurationMillis(projectKey(jar))
+                        .orElse(Long.MAX_VALUE)).reversed()
+                        .thenComparing(Comparator.naturalOrder()))
+                .toList();
+    }
+
+    /**
+     * Durations are kept by project (the jar name without its version), so a
+     * new upload of the same project inherits the history of the previous one.
+     *
+     * @param jar The student jar.
+     * @return The key of the jar's project.
+     */
+    static String projectKey(Path jar) {
+        // Jar names follow the POM naming, so reuse its version-stripping rule
+        String name = jar.getFileName().toString();
+        return MetadataExtractor.extractArtifactIdFromFileName(name.replaceFirst("\\.jar$", ".pom"));
+    }
+
+    /**
+     * Runs the acceptance checks against the given jars.
+     *
+     * @param referenceJar The reference {@code password-validator} jar.
+     * @param studentJars  The student jars.
+     * @return The results keyed by student jar file name, in name order.
+     */
+    public Map<String, AcceptanceResult> runAll(Path referenceJar, List<Path> studentJars)
+            throws InterruptedException {
+        AcceptanceRunner.OutputCapture.install();
+
+        Semaphore slots = new Semaphore(parallelism);
+        List<ActiveRun> active = new CopyOnWriteArrayList<>();
+        List<CompletableFuture<AcceptanceResult>> futures = new ArrayList<>();
+
+        ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> Thread
+                .ofPlatform().daemon().name("acceptance-watchdog").unstarted(runnable));
+        watchdog.scheduleAtFixedRate(() -> active.forEach(this::enforceBudget), WATCHDOG_PERIOD_MILLIS,
+                WATCHDOG_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        try {
+            for (Path studentJar : schedule(studentJars)) {
+                slots.acquire();
+                ActiveRun run = start(referenceJar, studentJar);
+                active.add(run);
+                run.result().whenComplete((_, _) -> {
+                    active.remove(run);
+                    slots.release();
+                });
+                futures.add(run.result());
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            watchdog.shutdownNow();
+        }
+
+        Map<String, AcceptanceResult> results = new TreeMap<>();
+        for (int i = 0; i < futures.size(); i++) {
+            AcceptanceResult result = futures.get(i).join();
+            results.put(result.jar(), result);
+        }
+        for (Path studentJar : studentJars) {
+            AcceptanceResult result = results.get(studentJar.getFileName().toString());
+            durations.record(projectKey(studentJar), result.durationMillis());
+        }
+        return results;
+    }
+
+    private ActiveRun start(Path referenceJar, Path studentJar) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        CompletableFuture<AcceptanceResult> result = new CompletableFuture<>();
+        Thread thread = Thread.ofPlatform()
+                .daemon()
+                .name("acceptance-" + studentJar.getFileName())
+                .unstarted(() -> result.complete(AcceptanceRunner.run(referenceJar, studentJar, output)));
+        ActiveRun run = new ActiveRun(studentJar, thread, System.nanoTime(), output, result);
+        thread.start();
+        return run;
+    }
+
+    // Abandon the run if it went over one of its budgets
+    private void enforceBudget(ActiveRun run) {
+        long elapsedNanos = System.nanoTime() - run.startNanos();
+        String exceeded = null;
+        if (elapsedNanos > wallClockBudget.toNanos()) {
+            exceeded = "wall-clock budget of " + wallClockBudget.toMillis() + " ms";
+        } else if (threads.isThreadCpuTimeSupported()
+                && threads.getThreadCpuTime(run.thread().threadId()) > cpuBudget.toNanos()) {
+            exceeded = "CPU budget of " + cpuBudget.toMillis() + " ms";
+        }
+        if (exceeded == null) {
+            return;
+        }
+
+        run.thread().interrupt();
+        String output;
+        synchronized (run.output()) {
+            output = run.output().toString(StandardCharsets.UTF_8);
+        }
+        run.result().complete(new AcceptanceResult(run.jar().getFileName().toString(), Outcome.TIMEOUT,
+                elapsedNanos / 1_000_000,
+                List.of(new CheckResult("acceptance", false, "exceeded " + exceeded)),
+                output));
+    }
+
+    private record ActiveRun(Path jar, Thread thread, long startNanos, ByteArrayOutputStream output,
+            CompletableFuture<AcceptanceResult> result) {
+    }
+}
@@ -0,0 +1,170 @@
+package com.cthiebaud.passwordvalidator;
+
+import com.cthiebaud.passwordvalidator.MetadataExtractor.Developer;
+import com.cthiebaud.passwordvalidator.MetadataExtractor.PomInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Persistent cache of extracted POM information, keyed by the SHA-256 of each
+ * POM's content.
+ * <p>
+ * Only new or changed POMs are parsed again. Entries that were not used during
+ * a run are evicted when the cache is saved, and the whole cache is discarded
+ * when {@link #EXTRACTOR_VERSION} changes.
+ */
+public class ExtractionCache {
+
+    /**
+     * Version of the extraction logic. Bump it whenever {@link PomParser} would
+     * produce different results for the same file.
+     */
+    public static final int EXTRACTOR_VERSION = 1;
+
+    private final Path path;
+    private final Map<String, CachedPom> previous;
+    private final ConcurrentMap<String, CachedPom> current = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private int evictions;
+
+    private ExtractionCache(Path path, Map<String, CachedPom> previous, int evictions) {
+        this.path = path;
+        this.previous = previous;
+        this.evictions = evictions;
+    }
+
+    /**
+     * Loads the cache from the given file. A missing, unreadable or outdated
+     * cache file yields an empty cache.
+     *
+     * @param path The cache file.
+     * @return The loaded cache.
+     */
+    public static ExtractionCache load(Path path) {
+        if (!Files.exists(path)) {
+            return new ExtractionCache(path, Map.of(), 0);
+        }
+        try {
+            CacheFile file = new ObjectMapper().readValue(path.toFile(), CacheFile.class);
+            Map<String, CachedPom> entries = file.entries() != null ? file.entries() : Map.of();
+            if (file.extractorVersion() != EXTRACTOR_VERSION) {
+                System.out.printf("Extraction cache was written by extractor version %d, discarding it%n",
+                        file.extractorVersion());
+                return new ExtractionCache(path, Map.of(), entries.size());
+            }
+            return new ExtractionCache(path, entries, 0);
+        } catch (IOException e) {
+            System.out.println("Error reading extraction cache, starting from scratch: " + e.getMessage());
+            return new ExtractionCache(path, Map.of(), 0);
+        }
+    }
+
+    /**
+     * Returns the POM information of the given file, parsing it only when its
+     * content is not in the cache. Safe to call from several threads.
+     *
+     * @param pomFile The POM file.
+     * @return The POM information, as {@link PomParser#parse(File)} returns it.
+     */
+    public PomInfo parse(File pomFile) throws Exception {
+        byte[] content = Files.readAllBytes(pomFile.toPath());
+        String hash = sha256(content);
+
+        CachedPom cached = current.get(hash);
+        if (cached == null) {
+            cached = previous.get(hash);
+        }
+        if (cached != null) {
+            hits.increment();
+            current.putIfAbsent(hash, cached);
+            return cached.toPomInfo(pomFile.getName());
+        }
+
+        misses.increment();
+        PomInfo parsed = PomParser.parse(new ByteArrayInputStream(content), pomFile.getName());
+        current.put(hash, CachedPom.of(parsed));
+        return parsed;
+    }
+
+    /**
+     * Writes the entries used during this run to disk, evicting the others.
+     */
+    public void save() throws IOException {
+        for (String hash : previous.keySet()) {
+            if (!current.containsKey(hash)) {
+                evictions++;
+            }
+        }
+
+        // Write to a sibling file first so an interrupted run never leaves a torn cache
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            new ObjectMapper().writeValue(temp.toFile(),
+                    new CacheFile(EXTRACTOR_VERSION, new TreeMap<>(current)));
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @return A one-line summary of cache hits, misses and evictions.
+     */
+    public String stats() {
+        return String.format("Extraction cache: %d hits, %d misses, %d evictions",
+                hits.sum(), misses.sum(), evictions);
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // On-disk layout of the cache file
+    record CacheFile(int extractorVersion, Map<String, CachedPom> entries) {
+    }
+
+    // Cached POM information; the file name is not part of it, since the key is
+    // the content alone
+    record CachedPom(String artifactId, String groupId, String version, String scmUrl,
+            List<CachedDeveloper> developers) {
+
+        static CachedPom of(PomInfo info) {
+            return new CachedPom(info.artifactId(), info.groupId(), info.version(), info.scmUrl(),
+                    info.developers().stream()
+                            .map(dev -> new CachedDeveloper(dev.id(), dev.name(), dev.email()))
+                            .toList());
+        }
+
+        PomInfo toPomInfo(String pomFileName) {
+            List<Developer> devs = developers.stream()
+                    .map(dev -> new Developer(dev.id(), dev.name(), dev.email(), pomFileName))
+                    .toList();
+            return new PomInfo(artifactId, groupId, version, devs, scmUrl);
+        }
+    }
+
+    record CachedDeveloper(String id, String name, String email) {
+    }
+}
@@ -0,0 +1,33 @@
+package com.cthiebaud.passwordvalidator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * File helpers shared by the tools.
+ */
+final class FileUtils {
+
+    private FileUtils() {
+    }
+
+    /**
+     * Deletes a file or a directory with its content; a missing path is
+     * ignored.
+     *
+     * @param path The file or directory.
+     */
+    static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path child : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(child);
+            }
+        }
+    }
+}
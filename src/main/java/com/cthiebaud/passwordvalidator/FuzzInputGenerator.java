@@ -0,0 +1,210 @@
+package com.cthiebaud.passwordvalidator;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generates candidate passwords for the {@link DifferentialFuzzer}.
+ * <p>
+ * Three kinds of input are mixed: random strings over all character classes,
+ * mutations of typical passwords, and boundary cases combining lengths around
+ * the usual minimums and maximums with every subset of the lower case, upper
+ * case, digit and special character classes. Characters are built in a buffer
+ * reused from one input to the next, so the only allocation per input is the
+ * resulting string. Not thread-safe: use one generator per thread.
+ */
+class FuzzInputGenerator {
+
+    /** The longest input generated, in chars. */
+    static final int MAX_LENGTH = 300;
+
+    private static final char[] LOWER = "abcdefghijklmnopqrstuvwxyz".toCharArray();
+    private static final char[] UPPER = "ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+    private static final char[] DIGITS = "0123456789".toCharArray();
+    private static final char[] SPECIALS = "!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~".toCharArray();
+    private static final char[] WHITESPACE = { ' ', '\t', '\n', '\r', '\u00A0', '\u2003' };
+    private static final char[] CONTROL = { '\u0000', '\u0001', '\u001B', '\u007F', '\u200B', '\u200D', '\uFEFF' };
+    private static final char[][] CLASSES = { LOWER, UPPER, DIGITS, SPECIALS };
+    private static final int[] UNICODE = {
+            'é', 'ß', 'ñ', 'Ø', 'Ω', 'λ', 'Ж', '中', '密', 'パ', 'א', 'ع', // letters without ASCII case
+            'É', 'Ä', 'İ', 'ı', // letters with tricky case mappings
+            '٣', '１', '²', // non-ASCII digits
+            0x0301, 0x0308, // combining marks
+            0x1F600, 0x1F512, 0x1D54F, // outside the BMP
+            0xD800, 0xDFFF, // unpaired surrogates
+    };
+
+    // Typical passwords, valid or nearly so, used as mutation seeds
+    private static final String[] SEEDS = {
+            "password", "Password1", "Passw0rd!", "P@ssw0rd", "Secret123!", "abcDEF123!@#", "qwerty",
+            "12345678", "Aa1!", "Aa1!Aa1!", "correct horse battery staple", "Tr0ub4dor&3", "ABCDEFGH",
+            "abcdefgh1", "!!!!!!!!", "Ünïcödé1!", "日本語パスワード1A!",
+    };
+
+    // Lengths around the thresholds validators typically use
+    private static final int[] BOUNDARY_LENGTHS = {
+            0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 19, 20, 21, 24, 25, 31, 32, 33, 63,
+            64, 65, 99, 100, 101, 127, 128, 129, 255, 256, 257,
+    };
+
+    // Room for a full-length input ending with a surrogate pair
+    private final char[] buffer = new char[MAX_LENGTH + 2];
+    private int length;
+
+    /**
+     * @param random The source of randomness.
+     * @return The next candidate password.
+     */
+    String next(SplittableRandom random) {
+        length = 0;
+        int kind = random.nextInt(10);
+        if (kind < 4) {
+            randomInput(random);
+        } else if (kind < 8) {
+            mutatedInput(random);
+        } else {
+            boundaryInput(random);
+        }
+        return new String(buffer, 0, length);
+    }
+
+    // Mostly short strings, sometimes up to MAX_LENGTH, mostly ASCII
+    private void randomInput(SplittableRandom random) {
+        int target = random.nextInt(4) == 0 ? random.nextInt(MAX_LENGTH + 1) : random.nextInt(25);
+        while (length < target) {
+            int roll = random.nextInt(20);
+            if (roll < 6) {
+                append(LOWER, random);
+            } else if (roll < 10) {
+                append(UPPER, random);
+            } else if (roll < 13) {
+                append(DIGITS, random);
+            } else if (roll < 16) {
+                append(SPECIALS, random);
+            } else if (roll < 17) {
+                append(WHITESPACE, random);
+            } else if (roll < 18) {
+                append(CONTROL, random);
+            } else {
+                appendUnicode(random);
+            }
+        }
+    }
+
+    // A seed with a few random edits
+    private void mutatedInput(SplittableRandom random) {
+        String seed = SEEDS[random.nextInt(SEEDS.length)];
+        seed.getChars(0, seed.length(), buffer, 0);
+        length = seed.length();
+
+        int edits = 1 + random.nextInt(4);
+        for (int i = 0; i < edits; i++) {
+            int at = length > 0 ? random.nextInt(length) : 0;
+            switch (random.nextInt(7)) {
+                case 0 -> insert(at, randomChar(random)); // insert
+                case 1 -> remove(at, Math.min(length - at, 1 + random.nextInt(3))); // delete
+                case 2 -> { // replace
+                    if (length > 0) {
+                        buffer[at] = randomChar(random);
+                    }
+                }
+                case 3 -> { // swap with the next char
+                    if (at + 1 < length) {
+                        char c = buffer[at];
+                        buffer[at] = buffer[at + 1];
+                        buffer[at + 1] = c;
+                    }
+                }
+                case 4 -> { // flip case
+                    if (length > 0) {
+                        char c = buffer[at];
+                        buffer[at] = Character.isUpperCase(c) ? Character.toLowerCase(c) : Character.toUpperCase(c);
+                    }
+                }
+                case 5 -> length = at; // truncate
+                default -> { // repeat a chunk
+                    int chunk = Math.min(length - at, 1 + random.nextInt(8));
+                    int copies = 1 + random.nextInt(4);
+                    for (int c = 0; c < copies && length + chunk <= MAX_LENGTH; c++) {
+                        System.arraycopy(buffer, at, buffer, length, chunk);
+                        length += chunk;
+                    }
+                }
+            }
+        }
+    }
+
+    // A boundary length filled with a chosen subset of the four usual classes,
+    // each of them present, sometimes with one unusual character
+    private void boundaryInput(SplittableRandom random) {
+        int target = BOUNDARY_LENGTHS[random.nextInt(BOUNDARY_LENGTHS.length)];
+        int classes = random.nextInt(16);
+        if (classes == 0) {
+            while (length < target) {
+                append(random.nextBoolean() ? WHITESPACE : CONTROL, random);
+            }
+            return;
+        }
+        // Each chosen class once first, so that all appear when there is room
+        int count = Integer.bitCount(classes);
+        for (int i = 0; length < target; i++) {
+            append(CLASSES[nthClass(classes, i < count ? i : random.nextInt(count))], random);
+        }
+        shuffle(random);
+        if (length > 0 && random.nextInt(4) == 0) {
+            buffer[random.nextInt(length)] = random.nextBoolean()
+                    ? WHITESPACE[random.nextInt(WHITESPACE.length)]
+                    : CONTROL[random.nextInt(CONTROL.length)];
+        }
+    }
+
+    // Index of the n-th bit set in classes
+    private static int nthClass(int classes, int n) {
+        for (int bit = 0;; bit++) {
+            if ((classes & (1 << bit)) != 0 && n-- == 0) {
+                return bit;
+            }
+        }
+    }
+
+    private char randomChar(SplittableRandom random) {
+        char[] pool = switch (random.nextInt(6)) {
+            case 0 -> LOWER;
+            case 1 -> UPPER;
+            case 2 -> DIGITS;
+            case 3 -> SPECIALS;
+            case 4 -> WHITESPACE;
+            default -> CONTROL;
+        };
+        return pool[random.nextInt(pool.length)];
+    }
+
+    private void append(char[] pool, SplittableRandom random) {
+        buffer[length++] = pool[random.nextInt(pool.length)];
+    }
+
+    private void appendUnicode(SplittableRandom random) {
+        length += Character.toChars(UNICODE[random.nextInt(UNICODE.length)], buffer, length);
+    }
+
+    private void insert(int at, char c) {
+        if (length < MAX_LENGTH) {
+            System.arraycopy(buffer, at, buffer, at + 1, length - at);
+            buffer[at] = c;
+            length++;
+        }
+    }
+
+    private void remove(int at, int count) {
+        System.arraycopy(buffer, at + count, buffer, at, length - at - count);
+        length -= count;
+    }
+
+    private void shuffle(SplittableRandom random) {
+        for (int i = length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            char c = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = c;
+        }
+    }
+}
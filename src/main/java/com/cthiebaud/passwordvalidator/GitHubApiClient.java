@@ -0,0 +1,226 @@
+package com.cthiebaud.passwordvalidator;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous GET client for the GitHub REST API.
+ * <p>
+ * Bodies are streamed to a {@link BodyDecoder} rather than buffered as text.
+ * Keeps at most {@code maxInFlight} requests open, revalidates cached
+ * responses with conditional requests when a {@link HttpResponseCache} is
+ * given, and lets a {@link RateLimitScheduler} space requests out and retry
+ * the ones rejected for exceeding the rate limit. Responses are decoded and
+ * copied to the cache on the given executor, never on the common pool.
+ */
+public class GitHubApiClient {
+
+    // Retries of a request rejected because of rate limiting
+    private static final int MAX_RATE_LIMIT_RETRIES = 3;
+
+    private final HttpClient client;
+    private final String token;
+    private final AsyncLimiter limiter;
+    private final HttpResponseCache cache;
+    private final RateLimitScheduler scheduler;
+    private final Executor executor;
+
+    /**
+     * @param client      The underlying HTTP client.
+     * @param token       The token sent in the {@code Authorization} header.
+     * @param maxInFlight The maximum number of concurrent requests.
+     * @param cache       The response cache, or {@code null} to disable caching.
+     * @param scheduler   The rate-limit scheduler.
+     * @param executor    Runs the blocking body reads and cache writes.
+     */
+    public GitHubApiClient(HttpClient client, String token, int maxInFlight, HttpResponseCache cache,
+            RateLimitScheduler scheduler, Executor executor) {
+        this.client = client;
+        this.token = token;
+        this.limiter = new AsyncLimiter(Math.max(1, maxInFlight));
+        this.cache = cache;
+        this.scheduler = scheduler;
+        this.executor = executor;
+    }
+
+    /**
+     * Sends a GET request and decodes a {@code 200} body as it streams in. A
+     * {@code 304 Not Modified} is decoded from the cache and reported as a
+     * {@code 200}.
+     *
+     * @param uri     The request URI.
+     * @param decoder Reads the value out of a successful response body.
+     * @return The response.
+     */
+    public <T> CompletableFuture<ApiResponse<T>> get(URI uri, BodyDecoder<T> decoder) {
+        return limiter.submit(() -> send(uri, decoder, 0));
+    }
+
+    private <T> CompletableFuture<ApiResponse<T>> send(URI uri, BodyDecoder<T> decoder, int attempt) {
+        Optional<HttpResponseCache.Entry> cached = cache != null ? cache.lookup(uri) : Optional.empty();
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(uri)
+                .header("Authorization", "token " + token)
+                .header("Accept", "application/vnd.github.v3+json");
+        cached.ifPresent(entry -> {
+            if (entry.etag() != null) {
+                builder.header("If-None-Match", entry.etag());
+            }
+            if (entry.lastModified() != null) {
+                builder.header("If-Modified-Since", entry.lastModified());
+            }
+        });
+        HttpRequest request = builder.build();
+
+        Metrics.HttpRequestEvent event = new Metrics.HttpRequestEvent(Metrics.GITHUB_REQUEST, uri.toString());
+        return scheduler.acquire()
+                .thenCompose(_ -> {
+                    event.start();
+                    return client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+                            .whenComplete((response, error) -> event.finish(
+                                    response != null ? response.statusCode() : -1));
+                })
+                .thenComposeAsync(response -> {
+                    scheduler.update(response.headers());
+                    int status = response.statusCode();
+
+                    if (status == 304 && cached.isPresent()) {
+                        discard(response.body());
+                        return CompletableFuture.completedFuture(fromCache(cached.get(), decoder));
+                    }
+
+                    if ((status == 403 || status == 429) && attempt < MAX_RATE_LIMIT_RETRIES) {
+                        long delay = scheduler.retryDelay(response.headers());
+                        if (delay >= 0) {
+                            discard(response.body());
+                            System.err.printf("Rate limited on %s, retrying in %d s%n", uri, delay / 1000);
+                            return CompletableFuture.supplyAsync(() -> null,
+                                    CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                                    .thenCompose(_ -> send(uri, decoder, attempt + 1));
+                        }
+                    }
+
+                    String link = response.headers().firstValue("Link").orElse(null);
+                    try (InputStream body = response.body()) {
+                        if (status != 200) {
+                            // Keep error bodies as text for the log
+                            String error = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+                            return CompletableFuture.completedFuture(new ApiResponse<>(status, null, error, link));
+                        }
+                        T value = cache != null
+                                ? decodeAndStore(uri, body, decoder, new HttpResponseCache.Entry(uri.toString(),
+                                        response.headers().firstValue("ETag").orElse(null),
+                                        response.headers().firstValue("Last-Modified").orElse(null),
+                                        link))
+                                : decoder.decode(body);
+                        return CompletableFuture.completedFuture(new ApiResponse<>(status, value, null, link));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, executor);
+    }
+
+    // Decode the body while copying it to the cache. Whatever the decoder leaves
+    // unread is drained so the cached body is complete.
+    private <T> T decodeAndStore(URI uri, InputStream body, BodyDecoder<T> decoder,
+            HttpResponseCache.Entry entry) throws IOException {
+        try (HttpResponseCache.BodyWriter writer = cache.begin(uri)) {
+            TeeInputStream tee = new TeeInputStream(body, writer.output());
+            T value = decoder.decode(tee);
+            tee.transferTo(OutputStream.nullOutputStream());
+            try {
+                writer.commit(entry);
+            } catch (IOException e) {
+                // A cache write failure only costs a full download next time
+                System.err.println("Error writing HTTP cache for " + uri + ": " + e.getMessage());
+            }
+            return value;
+        }
+    }
+
+    private <T> ApiResponse<T> fromCache(HttpResponseCache.Entry entry, BodyDecoder<T> decoder) {
+        try (InputStream body = cache.openBody(entry)) {
+            return new ApiResponse<>(200, decoder.decode(body), null, entry.link());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Release the connection of a response whose body is not needed
+    private static void discard(InputStream body) {
+        try (body) {
+            body.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            // Nothing to do: the body was not needed anyway
+        }
+    }
+
+    /**
+     * Reads a value out of a response body. Implementations may stop reading
+     * once they have what they need.
+     */
+    @FunctionalInterface
+    public interface BodyDecoder<T> {
+        T decode(InputStream body) throws IOException;
+    }
+
+    /**
+     * A response status with its decoded body, or the raw body text when the
+     * status is not {@code 200}, and the {@code Link} header used for
+     * pagination.
+     */
+    public record ApiResponse<T>(int statusCode, T value, String error, String link) {
+    }
+
+    // Copies every byte read from the response to the cache
+    private static class TeeInputStream extends FilterInputStream {
+        private final OutputStream copy;
+
+        TeeInputStream(InputStream in, OutputStream copy) {
+            super(in);
+            this.copy = copy;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                copy.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                copy.write(buffer, offset, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes must still reach the cache
+            return Math.max(0, read(new byte[(int) Math.min(n, 8192)]));
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
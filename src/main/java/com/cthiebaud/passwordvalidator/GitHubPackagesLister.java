@@ -2,16 +2,21 @@ package com.cthiebaud.passwordvalidator;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -19,6 +24,15 @@ import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 
 public class GitHubPackagesLister {
 
+    // GitHub organization whose packages are listed
+    static final String OWNER = "athenaeum-brew";
+
+    // Maximum number of concurrent GitHub API requests
+    static final int DEFAULT_MAX_IN_FLIGHT = 8;
+
+    // Directory of the on-disk GitHub API response cache
+    static final String DEFAULT_CACHE_DIR = ".github-cache";
+
     public static void main(String[] args) throws Exception {
         // Load exclusions from file
         Set<String> exclusions = loadExclusions("exclusions.yaml");
@@ -31,58 +45,156 @@ public class GitHubPackagesLister {
             return;
         }
 
-        String owner = "athenaeum-brew"; // GitHub organization name
-        String apiUrl = String.format("https://api.github.com/orgs/%s/packages?package_type=maven", owner);
-
-        // Create HTTP client and send API request for packages
-        HttpClient client = HttpClient.newHttpClient();
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(apiUrl))
-                .header("Authorization", "token " + token)
-                .header("Accept", "application/vnd.github.v3+json")
-                .build();
+        // API root and concurrency can be overridden, e.g. to point at a local stub server
+        URI apiUrl = URI.create(System.getProperty("github.api.url", PackageDiscovery.GITHUB_API_URL));
+        int maxInFlight = Integer.getInteger("github.maxInFlight", DEFAULT_MAX_IN_FLIGHT);
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        // Responses are revalidated with ETags; -Dgithub.cache.dir= (empty) disables the cache
+        String cacheDir = System.getProperty("github.cache.dir", DEFAULT_CACHE_DIR);
+        HttpResponseCache cache = cacheDir.isBlank() ? null : new HttpResponseCache(Path.of(cacheDir));
 
-        if (response.statusCode() == 200) {
-            // Parse the response JSON to list packages
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode rootNode = mapper.readTree(response.body());
-
-            try (PrintWriter writer = new PrintWriter("packages.txt")) {
-                for (JsonNode packageNode : rootNode) {
-                    String packageName = packageNode.get("name").asText();
+        // Discover every package page by page, fetching versions concurrently
+        ExecutorService io = Executors.newCachedThreadPool(runnable -> Thread.ofPlatform().daemon()
+                .name("github-io").unstarted(runnable));
+        try {
+            GitHubApiClient client = new GitHubApiClient(HttpClient.newHttpClient(), token, maxInFlight, cache,
+                    new RateLimitScheduler(), io);
+            PackageDiscovery discovery = new PackageDiscovery(client, apiUrl, OWNER);
+
+            try {
+                listPackages(discovery, exclusions, Path.of(ArtifactDownloader.PACKAGES_FILE));
+            } catch (CompletionException e) {
+                // Handle errors in fetching packages
+                System.err.println(e.getCause().getMessage());
+                return;
+            }
+        } finally {
+            io.shutdownNow();
+        }
 
-                    // Fetch latest version for the package
-                    String version = fetchLatestVersion(client, mapper, owner, packageName, token);
+        System.out.println("Package list written to packages.txt");
+        if (cache != null) {
+            System.out.println(cache.stats());
+        }
+    }
 
-                    // Derive Maven coordinates (groupId:artifactId:version)
-                    String[] packageParts = packageName.split("\\.");
-                    String groupId = String.join(".", List.of(packageParts).subList(0, packageParts.length - 1));
-                    String artifactId = packageParts[packageParts.length - 1];
+    /**
+     * Discovers the packages and keeps {@code output} sorted by coordinates as
+     * their versions come in. The file is rewritten in batches: each rewrite
+     * takes every package found while the previous one was being written. If
+     * the package list cannot be fetched, the file gets its previous content
+     * back.
+     *
+     * @param discovery  The package discovery.
+     * @param exclusions The {@code groupId:artifactId} of the packages to skip.
+     * @param output     The package list to write.
+     * @return The coordinates written.
+     * @throws CompletionException When the package list cannot be fetched or
+     *                             written.
+     */
+    static Set<String> listPackages(PackageDiscovery discovery, Set<String> exclusions, Path output)
+            throws IOException {
+        byte[] previous = Files.exists(output) ? Files.readAllBytes(output) : null;
+        SortedListFile list = new SortedListFile(output);
+        try {
+            discovery.discover(discovered -> {
+                System.out.println("Found package: " + discovered.coordinates());
+                // Check if the package should be excluded
+                if (exclusions.contains(discovered.artifact())) {
+                    Metrics.PACKAGES_EXCLUDED.increment();
+                    System.out.printf("Skipping package: %s (excluded)\n", discovered.coordinates());
+                    return;
+                }
+                list.add(discovered.coordinates());
+            }).join();
+        } catch (CompletionException e) {
+            // Versions of the pages already listed may still come in: keep them from rewriting the file
+            list.close();
+            if (previous != null) {
+                Files.write(output, previous);
+            } else {
+                Files.deleteIfExists(output);
+            }
+            throw e;
+        }
+        // Also covers an organization without packages, where nothing was written
+        Set<String> lines = list.close();
+        writeLines(output, lines);
+        return lines;
+    }
 
-                    String fullArtifact = String.format("%s:%s", groupId, artifactId);
+    // Sorted lines rewritten to a file as they are added. Adds come from concurrent callbacks: the one
+    // finding no rewrite in progress writes the file, again and again until no line is left unwritten.
+    private static final class SortedListFile {
+        private final Path output;
+        private final Set<String> lines = new TreeSet<>();
+        private boolean unwritten;
+        private boolean writing;
+        private boolean closed;
+
+        SortedListFile(Path output) {
+            this.output = output;
+        }
 
-                    // Check if the package should be excluded
-                    if (exclusions.contains(fullArtifact)) {
-                        System.out.printf("Skipping package: %s:%s:%s (excluded)\n", groupId, artifactId, version);
-                        continue;
+        void add(String line) {
+            synchronized (this) {
+                lines.add(line);
+                unwritten = true;
+                if (writing || closed) {
+                    return;
+                }
+                writing = true;
+            }
+            try {
+                while (true) {
+                    List<String> snapshot;
+                    synchronized (this) {
+                        if (!unwritten || closed) {
+                            return;
+                        }
+                        unwritten = false;
+                        snapshot = List.copyOf(lines);
                     }
+                    writeLines(output, snapshot);
+                }
+            } finally {
+                synchronized (this) {
+                    writing = false;
+                    notifyAll();
+                }
+            }
+        }
 
-                    String line = String.format("%s:%s:%s", groupId, artifactId, version);
-                    writer.println(line); // Write to output file
+        // Stops the rewrites and waits for the one in progress, so the file is left alone afterwards
+        synchronized Set<String> close() {
+            closed = true;
+            boolean interrupted = false;
+            while (writing) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
                 }
             }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return lines;
+        }
+    }
 
-            System.out.println("Package list written to packages.txt");
-        } else {
-            // Handle errors in fetching packages
-            System.err.println("Failed to fetch packages: " + response.statusCode());
-            System.err.println("Response: " + response.body());
+    // Replace the file in one move so readers never see a half-written list
+    private static void writeLines(Path output, Collection<String> lines) {
+        Path temp = output.resolveSibling(output.getFileName() + ".tmp");
+        try {
+            Files.write(temp, lines);
+            Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
-    private static Set<String> loadExclusions(String exclusionsFileName) throws IOException {
+    static Set<String> loadExclusions(String exclusionsFileName) throws IOException {
         Set<String> exclusions = new HashSet<>();
         try (InputStream input = GitHubPackagesLister.class.getClassLoader().getResourceAsStream(exclusionsFileName)) {
             if (input == null) {
@@ -103,37 +215,7 @@ public class GitHubPackagesLister {
         return exclusions;
     }
 
-    private static String fetchLatestVersion(HttpClient client, ObjectMapper mapper, String owner,
-            String packageName, String token) throws Exception {
-        // Fetch versions of a specific package
-        String versionsUrl = String.format(
-                "https://api.github.com/orgs/%s/packages/maven/%s/versions", owner, packageName);
-
-        HttpRequest versionsRequest = HttpRequest.newBuilder()
-                .uri(URI.create(versionsUrl))
-                .header("Authorization", "token " + token)
-                .header("Accept", "application/vnd.github.v3+json")
-                .build();
-
-        HttpResponse<String> versionsResponse = client.send(versionsRequest, HttpResponse.BodyHandlers.ofString());
-
-        if (versionsResponse.statusCode() == 200) {
-            // Parse and return the latest version name
-            JsonNode versionsNode = mapper.readTree(versionsResponse.body());
-            if (versionsNode.size() > 0) {
-                return versionsNode.get(0).get("name").asText(); // Latest version
-            } else {
-                return "no-version"; // No versions available
-            }
-        } else {
-            // Log errors and return fallback value
-            System.err.println("Failed to fetch versions for package: " + packageName);
-            System.err.println("Response: " + versionsResponse.body());
-            return "error-fetching-version";
-        }
-    }
-
-    private static String loadToken(String filePath) {
+    static String loadToken(String filePath) {
         // Load and return GitHub token from a file
         try {
             return Files.readString(Paths.get(filePath)).trim();
@@ -0,0 +1,187 @@
+package com.cthiebaud.passwordvalidator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Disk-backed cache of HTTP response bodies with their validators.
+ * <p>
+ * Each cached URI has two files named after the SHA-256 of the URI: the body,
+ * and a small JSON file holding the {@code ETag}, {@code Last-Modified} and
+ * {@code Link} headers. The validators are sent back as {@code If-None-Match}
+ * and {@code If-Modified-Since}, so an unchanged resource costs a {@code 304}
+ * with an empty body.
+ */
+public class HttpResponseCache {
+
+    private final Path directory;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param directory The directory holding the cache files; created on demand.
+     */
+    public HttpResponseCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Looks up the cached response for a URI.
+     *
+     * @param uri The request URI.
+     * @return The cached entry, or empty when there is none or it cannot be read.
+     */
+    public Optional<Entry> lookup(URI uri) {
+        Path metaFile = metaFile(uri);
+        if (!Files.exists(metaFile)) {
+            return Optional.empty();
+        }
+        try {
+            Entry entry = mapper.readValue(metaFile.toFile(), Entry.class);
+            // Guard against hash collisions and half-written entries
+            if (!uri.toString().equals(entry.uri()) || !Files.exists(bodyFile(uri))) {
+                return Optional.empty();
+            }
+            return Optional.of(entry);
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Opens the body of a cached entry for reading, counting it as a hit.
+     *
+     * @param entry The entry returned by {@link #lookup(URI)}.
+     * @return A stream over the cached body.
+     */
+    public InputStream openBody(Entry entry) throws IOException {
+        InputStream body = Files.newInputStream(bodyFile(URI.create(entry.uri())));
+        hits.increment();
+        return body;
+    }
+
+    /**
+     * Starts storing a fresh response. The body is written to a temporary file
+     * while it is being read and only becomes visible on
+     * {@link BodyWriter#commit(Entry)}.
+     *
+     * @param uri The request URI.
+     * @return A writer for the response body.
+     */
+    public BodyWriter begin(URI uri) throws IOException {
+        misses.increment();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, key(uri), ".tmp");
+        return new BodyWriter(uri, temp, new BufferedOutputStream(Files.newOutputStream(temp)));
+    }
+
+    /**
+     * @return A one-line summary of cache hits and misses.
+     */
+    public String stats() {
+        return String.format("HTTP cache: %d hits (304 Not Modified), %d misses", hits.sum(), misses.sum());
+    }
+
+    private void write(Path target, byte[] content) throws IOException {
+        Path temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, content);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path metaFile(URI uri) {
+        return directory.resolve(key(uri) + ".json");
+    }
+
+    private Path bodyFile(URI uri) {
+        return directory.resolve(key(uri) + ".body");
+    }
+
+    private static String key(URI uri) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(uri.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Validators and headers of a cached response.
+     *
+     * @param uri          The request URI.
+     * @param etag         The {@code ETag} header, or {@code null}.
+     * @param lastModified The {@code Last-Modified} header, or {@code null}.
+     * @param link         The {@code Link} header, or {@code null}; kept because
+     *                     pagination depends on it.
+     */
+    public record Entry(String uri, String etag, String lastModified, String link) {
+    }
+
+    /**
+     * Body of a response being stored; see {@link #begin(URI)}.
+     */
+    public class BodyWriter implements AutoCloseable {
+        private final URI uri;
+        private final Path temp;
+        private final OutputStream output;
+        private boolean committed;
+
+        private BodyWriter(URI uri, Path temp, OutputStream output) {
+            this.uri = uri;
+            this.temp = temp;
+            this.output = output;
+        }
+
+        /** @return The stream receiving the body. */
+        public OutputStream output() {
+            return output;
+        }
+
+        /**
+         * Makes the stored body and its validators visible. Responses without
+         * {@code ETag} or {@code Last-Modified} cannot be revalidated and are
+         * dropped instead.
+         *
+         * @param entry The validators and headers of the response.
+         */
+        public void commit(Entry entry) throws IOException {
+            output.close();
+            if (entry.etag() == null && entry.lastModified() == null) {
+                return;
+            }
+            // Body first, so a visible meta file always has its body
+            Files.move(temp, bodyFile(uri), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            write(metaFile(uri), mapper.writeValueAsBytes(entry));
+            committed = true;
+        }
+
+        /** Discards the body unless it was committed. */
+        @Override
+        public void close() throws IOException {
+            output.close();
+            if (!committed) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.cthiebaud.passwordvalidator;
+
+import com.cthiebaud.passwordvalidator.MetadataExtractor.PomInfo;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * First-pass check of the rubric items that can be read off a jar.
+ * <p>
+ * Every jar in {@code downloaded_packages} is inspected through its ZIP
+ * central directory ({@link ZipDirectory}), without unpacking it: the README at
+ * its root, the {@code -javadoc}, {@code -sources} and {@code -tests} companion
+ * jars next to it, its test classes, class count and bytecode size, and the
+ * coordinates of its embedded {@code pom.properties} or {@code pom.xml}. Only
+ * the POM entry, and source files until one has a Javadoc comment, are
+ * decompressed. Jars are inspected in parallel, and the report is written in
+ * jar name order to {@value #REPORT_FILE}.
+ * <p>
+ * The verdicts are heuristics, noted as such in the report: Javadoc counts
+ * when a {@code -javadoc} jar is present or a source file of the jar or of its
+ * {@code -sources} jar has a {@code /**} comment, whatever it documents.
+ * <p>
+ * Usage: {@code JarInspector [--parallelism=N] [project]}, where
+ * {@code project} keeps only the jars whose name contains it.
+ */
+public class JarInspector {
+
+    static final String REPORT_FILE = "jar_inspection.yaml";
+
+    // Points of each rubric item in README.md
+    private static final int README_POINTS = 3;
+    private static final int JAVADOC_POINTS = 3;
+    private static final int UNIT_TESTS_POINTS = 3;
+
+    private static final Pattern README = Pattern.compile("(?i)readme(\\.[a-z]+)?");
+    private static final Pattern TEST_CLASS = Pattern.compile("Test.*|.*(Test|Tests|TestCase|IT)");
+    private static final List<String> COMPANIONS = List.of("-javadoc.jar", "-sources.jar", "-tests.jar");
+    private static final Pattern JAVADOC_COMMENT = Pattern.compile("/\\*\\*\\s");
+
+    // How each verdict is reached, written at the top of the report
+    private static final Map<String, String> HEURISTICS = Map.of(
+            "readme", "a README file at the root of the jar",
+            "javadoc", "a -javadoc jar, or a /** comment in a source file of the jar or of its -sources jar",
+            "unitTests", "a -tests jar, or classes named like tests in the jar");
+
+    public static void main(String[] args) throws IOException {
+        String project = null;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        for (String arg : args) {
+            if (arg.startsWith("--parallelism=")) {
+                parallelism = Integer.parseInt(arg.substring("--parallelism=".length()));
+            } else {
+                project = arg;
+            }
+        }
+
+        List<Path> jars = findJars(Path.of(AcceptanceRunner.DOWNLOADED_DIR), project);
+        if (jars.isEmpty()) {
+            System.out.println("No JAR files found in " + AcceptanceRunner.DOWNLOADED_DIR + ".");
+            return;
+        }
+
+        Map<String, JarReport> reports = inspectAll(jars, parallelism);
+        reports.forEach((jar, report) -> System.out.println(report.error() != null
+                ? String.format("%-60s error: %s", jar, report.error())
+                : String.format("%-60s %d/%d points, %d classes, %,d bytes of bytecode", jar,
+                        report.criteria().points(), README_POINTS + JAVADOC_POINTS + UNIT_TESTS_POINTS,
+                        report.classes(), report.bytecodeBytes())));
+        writeReport(reports, REPORT_FILE);
+    }
+
+    /**
+     * Inspects jars on a pool of {@code parallelism} threads.
+     *
+     * @param jars        The jars to inspect.
+     * @param parallelism The number of jars inspected at the same time.
+     * @return The reports keyed by jar file name, in name order.
+     */
+    public static Map<String, JarReport> inspectAll(List<Path> jars, int parallelism) {
+        List<Callable<JarReport>> tasks = new ArrayList<>(jars.size());
+        for (Path jar : jars) {
+            tasks.add(() -> inspect(jar));
+        }
+
+        Map<String, JarReport> reports = new TreeMap<>();
+        try (ExecutorService pool = new ForkJoinPool(Math.max(1, parallelism))) {
+            List<Future<JarReport>> futures = pool.invokeAll(tasks);
+            for (int i = 0; i < jars.size(); i++) {
+                reports.put(jars.get(i).getFileName().toString(), futures.get(i).get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while inspecting jars", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unexpected failure while inspecting jars", e.getCause());
+        }
+        return reports;
+    }
+
+    /**
+     * Inspects one jar. Failures are reported in the result rather than thrown.
+     *
+     * @param jar The jar.
+     * @return What was found.
+     */
+    public static JarReport inspect(Path jar) {
+        String baseName = jar.getFileName().toString().replaceFirst("\\.jar$", "");
+        Path directory = jar.toAbsolutePath().getParent();
+        boolean javadocJar = Files.isRegularFile(directory.resolve(baseName + "-javadoc.jar"));
+        boolean sourcesJar = Files.isRegularFile(directory.resolve(baseName + "-sources.jar"));
+        boolean testsJar = Files.isRegularFile(directory.resolve(baseName + "-tests.jar"));
+
+        try {
+            ZipDirectory zip = ZipDirectory.open(jar);
+            String readme = null;
+            int classes = 0;
+            int sourceFiles = 0;
+            long bytecodeBytes = 0;
+            List<String> testClasses = new ArrayList<>();
+            List<ZipDirectory.Entry> pomEntries = new ArrayList<>();
+            List<ZipDirectory.Entry> sources = new ArrayList<>();
+
+            for (ZipDirectory.Entry entry : zip.entries()) {
+                String name = entry.name();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                if (name.indexOf('/') < 0 && README.matcher(name).matches()
+                        && (readme == null || name.compareTo(readme) < 0)) {
+                    readme = name;
+                } else if (name.endsWith(".class")) {
+                    classes++;
+                    bytecodeBytes += entry.size();
+                    String className = name.substring(0, name.length() - ".class".length()).replace('/', '.');
+                    String simpleName = className.substring(className.lastIndexOf('.') + 1);
+                    if (!name.startsWith("META-INF/") && simpleName.indexOf('$') < 0
+                            && TEST_CLASS.matcher(simpleName).matches()) {
+                        testClasses.add(className);
+                    }
+                } else if (name.endsWith(".java")) {
+                    sourceFiles++;
+                    sources.add(entry);
+                } else if (name.startsWith("META-INF/maven/")
+                        && (name.endsWith("/pom.properties") || name.endsWith("/pom.xml"))) {
+                    pomEntries.add(entry);
+                }
+            }
+            testClasses.sort(Comparator.naturalOrder());
+
+            Coordinates coordinates = coordinates(zip, pomEntries, baseName);
+            boolean hasReadme = readme != null;
+            boolean javadocComments = hasJavadocComment(zip, sources)
+                    || sourcesJar && hasJavadocComment(directory.resolve(baseName + "-sources.jar"));
+            boolean hasJavadoc = javadocJar || javadocComments;
+            boolean hasTests = testsJar || !testClasses.isEmpty();
+            Criteria criteria = new Criteria(hasReadme, hasJavadoc, hasTests,
+                    (hasReadme ? README_POINTS : 0) + (hasJavadoc ? JAVADOC_POINTS : 0)
+                            + (hasTests ? UNIT_TESTS_POINTS : 0));
+
+            return new JarReport(readme, javadocJar, sourcesJar, testsJar, classes, bytecodeBytes, sourceFiles,
+                    javadocComments, testClasses, coordinates, criteria, null);
+        } catch (IOException | RuntimeException e) {
+            return new JarReport(null, javadocJar, sourcesJar, testsJar, 0, 0, 0, false, List.of(), null, null,
+                    e.toString());
+        }
+    }
+
+    // Whether a source file of a -sources jar has a Javadoc comment
+    private static boolean hasJavadocComment(Path sourcesJar) {
+        try {
+            ZipDirectory zip = ZipDirectory.open(sourcesJar);
+            return hasJavadocComment(zip, zip.entries().stream()
+                    .filter(entry -> !entry.isDirectory() && entry.name().endsWith(".java"))
+                    .toList());
+        } catch (IOException e) {
+            // An unreadable companion jar only costs the comments it may hold
+            return false;
+        }
+    }
+
+    // Whether one of the source entries has a Javadoc comment; stops at the first that does
+    private static boolean hasJavadocComment(ZipDirectory zip, List<ZipDirectory.Entry> sources) throws IOException {
+        for (ZipDirectory.Entry entry : sources) {
+            if (JAVADOC_COMMENT.matcher(new String(zip.read(entry), StandardCharsets.ISO_8859_1)).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Coordinates of the embedded POM. Shaded jars embed several; prefer the
+    // one named like the jar, then pom.properties over pom.xml.
+    private static Coordinates coordinates(ZipDirectory zip, List<ZipDirectory.Entry> pomEntries, String baseName)
+            throws IOException {
+        pomEntries.sort(Comparator
+                .comparing((ZipDirectory.Entry entry) -> !baseName.startsWith(pomOwner(entry.name())))
+                .thenComparing(entry -> !entry.name().endsWith("/pom.properties"))
+                .thenComparing(ZipDirectory.Entry::name));
+        for (ZipDirectory.Entry entry : pomEntries) {
+            byte[] content = zip.read(entry);
+            if (entry.name().endsWith("/pom.properties")) {
+                Properties properties = new Properties();
+                properties.load(new ByteArrayInputStream(content));
+                if (properties.getProperty("artifactId") != null) {
+                    return new Coordinates(properties.getProperty("groupId"), properties.getProperty("artifactId"),
+                            properties.getProperty("version"), entry.name());
+                }
+            } else {
+                try {
+                    PomInfo info = PomParser.parse(new ByteArrayInputStream(content), entry.name());
+                    return new Coordinates(info.groupId(), info.artifactId(), info.version(), entry.name());
+                } catch (Exception e) {
+                    // Try the next embedded POM
+                }
+            }
+        }
+        return null;
+    }
+
+    // META-INF/maven/<groupId>/<artifactId>/pom.* -> "<groupId>.<artifactId>-", as in jar names
+    private static String pomOwner(String name) {
+        String[] parts = name.split("/");
+        return parts.length == 5 ? parts[2] + "." + parts[3] + "-" : name;
+    }
+
+    // Jars of the directory in name order, without companion jars
+    static List<Path> findJars(Path directory, String project) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".jar"))
+                    .filter(file -> COMPANIONS.stream().noneMatch(file.getFileName().toString()::endsWith))
+                    .filter(file -> project == null || file.getFileName().toString().contains(project))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Writes the reports to a YAML file.
+     *
+     * @param reports    The reports keyed by jar file name.
+     * @param outputPath The path of the output YAML file.
+     */
+    static void writeReport(Map<String, JarReport> reports, String outputPath) {
+        try {
+            YAMLFactory yamlFactory = new YAMLFactory()
+                    .enable(YAMLGenerator.Feature.MINIMIZE_QUOTES)
+                    .disable(YAMLGenerator.Feature.SPLIT_LINES);
+            ObjectMapper yamlMapper = new ObjectMapper(yamlFactory);
+            yamlMapper.setDefaultPropertyInclusion(JsonInclude.Include.NON_NULL);
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("heuristics", new TreeMap<>(HEURISTICS));
+            report.put("jars", reports);
+            yamlMapper.writeValue(new File(outputPath), report);
+
+            System.out.println("Jar inspection written to YAML file: " + outputPath);
+        } catch (IOException e) {
+            System.out.println("Error writing to YAML file.");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Coordinates of the POM embedded in a jar.
+     *
+     * @param source The jar entry they were read from.
+     */
+    public record Coordinates(String groupId, String artifactId, String version, String source) {
+    }
+
+    /**
+     * First-pass verdict on the rubric items of README.md a jar can tell about.
+     *
+     * @param readme    A README is at the root of the jar.
+     * @param javadoc   A javadoc jar comes with the jar, or one of its source
+     *                  files has a Javadoc comment.
+     * @param unitTests Test classes are in the jar or in a tests jar.
+     * @param points    The points these items are worth.
+     */
+    public record Criteria(boolean readme, boolean javadoc, boolean unitTests, int points) {
+    }
+
+    /**
+     * What was found in one jar.
+     *
+     * @param readme          The name of the README at the root of the jar, if any.
+     * @param javadocJar      A {@code -javadoc} jar is next to the jar.
+     * @param sourcesJar      A {@code -sources} jar is next to the jar.
+     * @param testsJar        A {@code -tests} jar is next to the jar.
+     * @param classes         The number of class files.
+     * @param bytecodeBytes   The uncompressed size of the class files.
+     * @param sourceFiles     The number of {@code .java} files in the jar.
+     * @param javadocComments A source file of the jar or of its {@code -sources}
+     *                        jar has a {@code /**} comment.
+     * @param testClasses     The classes named like tests, in name order.
+     * @param coordinates     The embedded POM coordinates, if any.
+     * @param criteria        The rubric verdict.
+     * @param error           Why the jar could not be read, if it could not.
+     */
+    public record JarReport(String readme, boolean javadocJar, boolean sourcesJar, boolean testsJar, int classes,
+            long bytecodeBytes, int sourceFiles, boolean javadocComments, List<String> testClasses,
+            Coordinates coordinates, Criteria criteria, String error) {
+    }
+}
@@ -0,0 +1,127 @@
+package com.cthiebaud.passwordvalidator;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A Maven repository layout, read through streams.
+ * <p>
+ * Remote repositories are read with {@link HttpClient#sendAsync}; {@code file:}
+ * repositories, handy for tests and mirrors, are read from disk.
+ */
+public interface MavenRepository {
+
+    /**
+     * Opens a file of the repository.
+     *
+     * @param path The path relative to the repository root, e.g.
+     *             {@code com/example/app/1.0/app-1.0.pom}.
+     * @return The content, or empty when the repository does not have the file.
+     *         The caller closes the stream.
+     */
+    CompletableFuture<Optional<InputStream>> open(String path);
+
+    /**
+     * @param root     The repository root, {@code http(s):} or {@code file:}.
+     * @param user     The user for basic authentication, ignored for files.
+     * @param token    The password or token; {@code null} for none.
+     * @param client   The HTTP client, ignored for files.
+     * @param executor Runs the blocking file reads.
+     * @return The repository.
+     */
+    static MavenRepository of(URI root, String user, String token, HttpClient client, Executor executor) {
+        URI base = root.toString().endsWith("/") ? root : URI.create(root + "/");
+        if ("file".equals(base.getScheme())) {
+            return new FileRepository(Path.of(base), executor);
+        }
+        return new HttpRepository(base, user, token, client);
+    }
+
+    /** A repository served over HTTP. */
+    class HttpRepository implements MavenRepository {
+        private final URI base;
+        private final String authorization;
+        private final HttpClient client;
+
+        HttpRepository(URI base, String user, String token, HttpClient client) {
+            this.base = base;
+            this.authorization = token != null
+                    ? "Basic " + Base64.getEncoder()
+                            .encodeToString((user + ":" + token).getBytes(StandardCharsets.UTF_8))
+                    : null;
+            this.client = client;
+        }
+
+        @Override
+        public CompletableFuture<Optional<InputStream>> open(String path) {
+            URI uri = base.resolve(path);
+            HttpRequest.Builder request = HttpRequest.newBuilder(uri);
+            if (authorization != null) {
+                request.header("Authorization", authorization);
+            }
+            Metrics.HttpRequestEvent event = new Metrics.HttpRequestEvent(Metrics.ARTIFACT_REQUEST, uri.toString());
+            event.start();
+            return client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofInputStream())
+                    .whenComplete((response, error) -> event.finish(response != null ? response.statusCode() : -1))
+                    .thenApply(response -> {
+                        int status = response.statusCode();
+                        if (status == 200) {
+                            return Optional.of(response.body());
+                        }
+                        discard(response.body());
+                        if (status == 404) {
+                            return Optional.empty();
+                        }
+                        throw new UncheckedIOException(new IOException("HTTP " + status + " for " + uri));
+                    });
+        }
+
+        // Release the connection of a response whose body is not needed
+        private static void discard(InputStream body) {
+            try (body) {
+                body.transferTo(OutputStream.nullOutputStream());
+            } catch (IOException e) {
+                // Nothing to do: the body was not needed anyway
+            }
+        }
+    }
+
+    /** A repository laid out in a local directory. */
+    class FileRepository implements MavenRepository {
+        private final Path root;
+        private final Executor executor;
+
+        FileRepository(Path root, Executor executor) {
+            this.root = root;
+            this.executor = executor;
+        }
+
+        @Override
+        public CompletableFuture<Optional<InputStream>> open(String path) {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return Optional.of(Files.newInputStream(root.resolve(path)));
+                } catch (NoSuchFileException | FileNotFoundException e) {
+                    return Optional.empty();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor);
+        }
+    }
+}
@@ -0,0 +1,527 @@
+package com.cthiebaud.passwordvalidator;
+
+import com.cthiebaud.passwordvalidator.MetadataExtractor.Developer;
+import com.cthiebaud.passwordvalidator.MetadataExtractor.PomInfo;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Binary catalog of the extracted POM information, with prebuilt indexes.
+ * <p>
+ * Written by {@link MetadataExtractor} next to {@code packages_metadata.yaml},
+ * with the same content: every string is stored once in a string table, and
+ * projects and developers are fixed-size records referring to it. Hash indexes
+ * map an artifactId, a groupId, a developer id or email, or an SCM host to the
+ * projects that have it. {@link #open(Path)} memory-maps the file and reads
+ * its header only; a lookup probes one index and materializes the matching
+ * projects alone, so neither depends on the number of projects.
+ * <p>
+ * Usage: {@code MetadataCatalog [--catalog=FILE] [--output=FILE]
+ * [--artifact-id=X] [--group-id=X] [--developer-id=X] [--email=X]
+ * [--scm-host=X] [--no-scm]} dumps the projects matching every filter given,
+ * all of them by default, as YAML in the {@code packages_metadata.yaml} layout.
+ */
+public final class MetadataCatalog {
+
+    static final String CATALOG_FILE = "packages_metadata.catalog";
+    static final String DUMP_FILE = "packages_catalog.yaml";
+
+    private static final int MAGIC = 0x50564361; // "PVCa"
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int NONE = -1;
+    private static final int PROJECT_INTS = 7; // key, artifactId, groupId, version, scmUrl, firstDeveloper, count
+    private static final int DEVELOPER_INTS = 4; // id, name, email, pomFile
+    private static final int HEADER_INTS = 10 + Index.values().length;
+
+    private static final Pattern SCP_LIKE = Pattern.compile("^[^/@:]+@([^:/]+):.*");
+
+    /** The keys projects are indexed by. */
+    public enum Index {
+        ARTIFACT_ID,
+        GROUP_ID,
+        DEVELOPER_ID,
+        /** Emails are compared ignoring case. */
+        DEVELOPER_EMAIL,
+        /** The host of the SCM URL, e.g. {@code github.com}, ignoring case. */
+        SCM_HOST;
+
+        String normalize(String key) {
+            return this == DEVELOPER_EMAIL || this == SCM_HOST ? key.toLowerCase(Locale.ROOT) : key;
+        }
+    }
+
+    private final MappedByteBuffer buffer;
+    private final int projectCount;
+    private final int stringOffsets;
+    private final int stringBlob;
+    private final int projects;
+    private final int developers;
+    private final int withoutScm;
+    private final int[] indexes;
+
+    private MetadataCatalog(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_INTS * Integer.BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a metadata catalog");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported catalog format version " + buffer.getInt(4));
+        }
+        this.projectCount = buffer.getInt(8);
+        this.stringOffsets = buffer.getInt(20);
+        this.stringBlob = buffer.getInt(24);
+        this.projects = buffer.getInt(28);
+        this.developers = buffer.getInt(32);
+        this.withoutScm = buffer.getInt(36);
+        this.indexes = new int[Index.values().length];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = buffer.getInt(40 + i * Integer.BYTES);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path catalogPath = Path.of(CATALOG_FILE);
+        String output = DUMP_FILE;
+        Map<Index, String> filters = new LinkedHashMap<>();
+        boolean noScm = false;
+        for (String arg : args) {
+            if (arg.startsWith("--catalog=")) {
+                catalogPath = Path.of(arg.substring("--catalog=".length()));
+            } else if (arg.startsWith("--output=")) {
+                output = arg.substring("--output=".length());
+            } else if (arg.startsWith("--artifact-id=")) {
+                filters.put(Index.ARTIFACT_ID, arg.substring("--artifact-id=".length()));
+            } else if (arg.startsWith("--group-id=")) {
+                filters.put(Index.GROUP_ID, arg.substring("--group-id=".length()));
+            } else if (arg.startsWith("--developer-id=")) {
+                filters.put(Index.DEVELOPER_ID, arg.substring("--developer-id=".length()));
+            } else if (arg.startsWith("--email=")) {
+                filters.put(Index.DEVELOPER_EMAIL, arg.substring("--email=".length()));
+            } else if (arg.startsWith("--scm-host=")) {
+                filters.put(Index.SCM_HOST, arg.substring("--scm-host=".length()));
+            } else if (arg.equals("--no-scm")) {
+                noScm = true;
+            }
+        }
+
+        MetadataCatalog catalog = open(catalogPath);
+        int[] matches = null;
+        for (Map.Entry<Index, String> filter : filters.entrySet()) {
+            matches = intersect(matches, catalog.lookup(filter.getKey(), filter.getValue()));
+        }
+        if (noScm) {
+            matches = intersect(matches, catalog.withoutScmUrl());
+        }
+
+        Map<String, PomInfo> selected = new LinkedHashMap<>();
+        if (matches == null) {
+            for (int i = 0; i < catalog.size(); i++) {
+                selected.put(catalog.key(i), catalog.project(i));
+            }
+        } else {
+            for (int i : matches) {
+                selected.put(catalog.key(i), catalog.project(i));
+            }
+        }
+        System.out.printf("%d of %d projects selected%n", selected.size(), catalog.size());
+        YamlWriter.writePomInfoToYamlFile(selected, output);
+    }
+
+    /**
+     * Maps a catalog file.
+     *
+     * @param path The catalog file.
+     * @return The catalog.
+     * @throws IOException When the file is not a catalog of this version.
+     */
+    public static MetadataCatalog open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid once the channel is closed
+            return new MetadataCatalog(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /** @return The number of projects. */
+    public int size() {
+        return projectCount;
+    }
+
+    /**
+     * @param project A project number, from 0 inclusive to {@link #size()}
+     *                exclusive, in key order.
+     * @return Its key, as in {@code packages_metadata.yaml}.
+     */
+    public String key(int project) {
+        return string(projectField(project, 0));
+    }
+
+    /**
+     * @param project A project number, from 0 inclusive to {@link #size()}
+     *                exclusive, in key order.
+     * @return Its POM information.
+     */
+    public PomInfo project(int project) {
+        int first = projectField(project, 5);
+        int count = projectField(project, 6);
+        List<Developer> devs = new ArrayList<>(count);
+        for (int i = first; i < first + count; i++) {
+            int record = developers + i * DEVELOPER_INTS * Integer.BYTES;
+            devs.add(new Developer(string(buffer.getInt(record)), string(buffer.getInt(record + 4)),
+                    string(buffer.getInt(record + 8)), string(buffer.getInt(record + 12))));
+        }
+        return new PomInfo(string(projectField(project, 1)), string(projectField(project, 2)),
+                string(projectField(project, 3)), devs, string(projectField(project, 4)));
+    }
+
+    /**
+     * Finds the projects with a key.
+     *
+     * @param index The index to look in.
+     * @param key   The key.
+     * @return The numbers of the matching projects, in ascending order.
+     */
+    public int[] lookup(Index index, String key) {
+        byte[] wanted = index.normalize(key).getBytes(StandardCharsets.UTF_8);
+        int table = indexes[index.ordinal()];
+        int capacity = buffer.getInt(table);
+        int slots = table + Integer.BYTES;
+        for (int slot = hash(wanted) & (capacity - 1);; slot = (slot + 1) & (capacity - 1)) {
+            int keyString = buffer.getInt(slots + slot * 2 * Integer.BYTES);
+            if (keyString == NONE) {
+                return new int[0];
+            }
+            if (stringEquals(keyString, wanted)) {
+                return postings(buffer.getInt(slots + slot * 2 * Integer.BYTES + Integer.BYTES));
+            }
+        }
+    }
+
+    /** @return The numbers of the projects without an SCM URL, in ascending order. */
+    public int[] withoutScmUrl() {
+        return postings(withoutScm);
+    }
+
+    private int projectField(int project, int field) {
+        if (project < 0 || project >= projectCount) {
+            throw new IndexOutOfBoundsException(project);
+        }
+        return buffer.getInt(projects + (project * PROJECT_INTS + field) * Integer.BYTES);
+    }
+
+    private int[] postings(int position) {
+        int[] result = new int[buffer.getInt(position)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = buffer.getInt(position + (i + 1) * Integer.BYTES);
+        }
+        return result;
+    }
+
+    private String string(int id) {
+        if (id == NONE) {
+            return null;
+        }
+        int start = buffer.getInt(stringOffsets + id * Integer.BYTES);
+        int end = buffer.getInt(stringOffsets + (id + 1) * Integer.BYTES);
+        byte[] bytes = new byte[end - start];
+        buffer.get(stringBlob + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Compare in place, without decoding the stored string
+    private boolean stringEquals(int id, byte[] wanted) {
+        int start = buffer.getInt(stringOffsets + id * Integer.BYTES);
+        int end = buffer.getInt(stringOffsets + (id + 1) * Integer.BYTES);
+        if (end - start != wanted.length) {
+            return false;
+        }
+        for (int i = 0; i < wanted.length; i++) {
+            if (buffer.get(stringBlob + start + i) != wanted[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Sorted intersection; null stands for every project
+    private static int[] intersect(int[] a, int[] b) {
+        if (a == null) {
+            return b;
+        }
+        return Arrays.stream(a).filter(i -> Arrays.binarySearch(b, i) >= 0).toArray();
+    }
+
+    // FNV-1a, stable across JVMs unlike String.hashCode of a changed encoding
+    private static int hash(byte[] bytes) {
+        int hash = 0x811c9dc5;
+        for (byte b : bytes) {
+            hash = (hash ^ (b & 0xff)) * 0x01000193;
+        }
+        return hash;
+    }
+
+    /**
+     * @param scmUrl An SCM URL, possibly with a {@code scm:git:} prefix or in
+     *               {@code git@host:path} form.
+     * @return Its host in lower case, or {@code null} if it has none.
+     */
+    static String scmHost(String scmUrl) {
+        if (scmUrl == null || scmUrl.isBlank()) {
+            return null;
+        }
+        String url = scmUrl.trim().replaceFirst("^scm:[^:]+:", "");
+        Matcher scpLike = SCP_LIKE.matcher(url);
+        if (scpLike.matches()) {
+            return scpLike.group(1).toLowerCase(Locale.ROOT);
+        }
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads every project, from the catalog when there is one, from the YAML
+     * written next to it otherwise. A catalog older than the YAML, left by a
+     * failed {@link #write(Map, Path)}, is ignored. The YAML does not name the
+     * POM file of a developer, which is then {@code null}.
+     *
+     * @param catalogPath The catalog file.
+     * @param yamlPath    The {@code packages_metadata.yaml} file.
+     * @return The POM information keyed by project key, in key order.
+     */
+    static Map<String, PomInfo> readProjects(Path catalogPath, Path yamlPath) throws IOException {
+        Map<String, PomInfo> projects = new LinkedHashMap<>();
+        // The extractor writes the YAML first, then the catalog
+        boolean catalogIsCurrent = Files.isRegularFile(catalogPath) && (!Files.exists(yamlPath)
+                || Files.getLastModifiedTime(catalogPath).compareTo(Files.getLastModifiedTime(yamlPath)) >= 0);
+        if (catalogIsCurrent) {
+            MetadataCatalog catalog = open(catalogPath);
+            for (int i = 0; i < catalog.size(); i++) {
+                projects.put(catalog.key(i), catalog.project(i));
+            }
+            return projects;
+        }
+
+        JsonNode root = new ObjectMapper(new YAMLFactory()).readTree(yamlPath.toFile());
+        List<String> keys = new ArrayList<>();
+        root.path("projects").fieldNames().forEachRemaining(keys::add);
+        keys.sort(Comparator.naturalOrder());
+        for (String key : keys) {
+            JsonNode project = root.path("projects").path(key);
+            List<Developer> devs = new ArrayList<>();
+            for (JsonNode dev : project.path("developers")) {
+                devs.add(new Developer(text(dev, "id"), text(dev, "name"), text(dev, "email"), null));
+            }
+            projects.put(key, new PomInfo(text(project, "artifactId"), text(project, "groupId"),
+                    text(project, "version"), devs, text(project, "scmUrl")));
+        }
+        return projects;
+    }
+
+    // YamlWriter writes "Unknown" and "N/A" for missing values
+    private static String text(JsonNode node, String field) {
+        String value = node.path(field).asText(null);
+        return value == null || value.equals("Unknown") || value.equals("N/A") ? null : value;
+    }
+
+    /**
+     * Writes a catalog, replacing the file atomically.
+     *
+     * @param pomInfoByFile The POM information keyed by project, as extracted.
+     * @param path          The catalog file.
+     */
+    public static void write(Map<String, PomInfo> pomInfoByFile, Path path) throws IOException {
+        // Projects in key order, so that numbers do not depend on the map given
+        List<String> keys = new ArrayList<>(new TreeSet<>(pomInfoByFile.keySet()));
+        StringTable strings = new StringTable();
+
+        int[] projectRecords = new int[keys.size() * PROJECT_INTS];
+        List<int[]> developerRecords = new ArrayList<>();
+        List<Integer> withoutScm = new ArrayList<>();
+        List<Map<String, TreeSet<Integer>>> indexed = new ArrayList<>();
+        for (int i = 0; i < Index.values().length; i++) {
+            indexed.add(new HashMap<>());
+        }
+
+        for (int project = 0; project < keys.size(); project++) {
+            String key = keys.get(project);
+            PomInfo info = pomInfoByFile.get(key);
+            int record = project * PROJECT_INTS;
+            projectRecords[record] = strings.id(key);
+            projectRecords[record + 1] = strings.id(info.artifactId());
+            projectRecords[record + 2] = strings.id(info.groupId());
+            projectRecords[record + 3] = strings.id(info.version());
+            projectRecords[record + 4] = strings.id(info.scmUrl());
+            projectRecords[record + 5] = developerRecords.size();
+            projectRecords[record + 6] = info.developers().size();
+            for (Developer dev : info.developers()) {
+                developerRecords.add(new int[] { strings.id(dev.id()), strings.id(dev.name()),
+                        strings.id(dev.email()), strings.id(dev.pomFile()) });
+                addPosting(indexed, Index.DEVELOPER_ID, dev.id(), project);
+                addPosting(indexed, Index.DEVELOPER_EMAIL, dev.email(), project);
+            }
+            addPosting(indexed, Index.ARTIFACT_ID, info.artifactId(), project);
+            addPosting(indexed, Index.GROUP_ID, info.groupId(), project);
+            String host = scmHost(info.scmUrl());
+            addPosting(indexed, Index.SCM_HOST, host, project);
+            if (host == null) {
+                withoutScm.add(project);
+            }
+        }
+
+        // Hash tables of index keys to offsets in the postings area
+        List<int[]> tables = new ArrayList<>();
+        List<Integer> postings = new ArrayList<>();
+        for (Map<String, TreeSet<Integer>> index : indexed) {
+            int capacity = Integer.highestOneBit(Math.max(1, index.size() * 2 - 1)) << 1;
+            int[] table = new int[capacity * 2];
+            Arrays.fill(table, NONE);
+            for (Map.Entry<String, TreeSet<Integer>> entry : index.entrySet()) {
+                byte[] keyBytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                int slot = hash(keyBytes) & (capacity - 1);
+                while (table[slot * 2] != NONE) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                table[slot * 2] = strings.id(entry.getKey());
+                table[slot * 2 + 1] = postings.size();
+                postings.add(entry.getValue().size());
+                postings.addAll(entry.getValue());
+            }
+            tables.add(table);
+        }
+        int withoutScmPosting = postings.size();
+        postings.add(withoutScm.size());
+        postings.addAll(withoutScm);
+
+        // Section offsets
+        int stringOffsets = HEADER_INTS * Integer.BYTES;
+        int stringBlob = stringOffsets + (strings.size() + 1) * Integer.BYTES;
+        int projectsPosition = stringBlob + strings.blobSize();
+        int developersPosition = projectsPosition + projectRecords.length * Integer.BYTES;
+        int tablesPosition = developersPosition + developerRecords.size() * DEVELOPER_INTS * Integer.BYTES;
+        int[] tablePositions = new int[tables.size()];
+        int position = tablesPosition;
+        for (int i = 0; i < tables.size(); i++) {
+            tablePositions[i] = position;
+            position += (1 + tables.get(i).length) * Integer.BYTES;
+        }
+        int postingsPosition = position;
+
+        Path parent = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(keys.size());
+                out.writeInt(developerRecords.size());
+                out.writeInt(strings.size());
+                out.writeInt(stringOffsets);
+                out.writeInt(stringBlob);
+                out.writeInt(projectsPosition);
+                out.writeInt(developersPosition);
+                out.writeInt(postingsPosition + withoutScmPosting * Integer.BYTES);
+                for (int tablePosition : tablePositions) {
+                    out.writeInt(tablePosition);
+                }
+
+                strings.writeTo(out);
+                for (int value : projectRecords) {
+                    out.writeInt(value);
+                }
+                for (int[] record : developerRecords) {
+                    for (int value : record) {
+                        out.writeInt(value);
+                    }
+                }
+                for (int[] table : tables) {
+                    out.writeInt(table.length / 2);
+                    for (int i = 0; i < table.length; i += 2) {
+                        out.writeInt(table[i]);
+                        // Postings are referred to by absolute position
+                        out.writeInt(table[i] == NONE ? NONE : postingsPosition + table[i + 1] * Integer.BYTES);
+                    }
+                }
+                for (int value : postings) {
+                    out.writeInt(value);
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void addPosting(List<Map<String, TreeSet<Integer>>> indexed, Index index, String key,
+            int project) {
+        if (key != null) {
+            indexed.get(index.ordinal()).computeIfAbsent(index.normalize(key), _ -> new TreeSet<>()).add(project);
+        }
+    }
+
+    // Interned strings, numbered in order of first use
+    private static final class StringTable {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<byte[]> encoded = new ArrayList<>();
+        private int blobSize;
+
+        int id(String value) {
+            if (value == null) {
+                return NONE;
+            }
+            return ids.computeIfAbsent(value, s -> {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                encoded.add(bytes);
+                blobSize += bytes.length;
+                return encoded.size() - 1;
+            });
+        }
+
+        int size() {
+            return encoded.size();
+        }
+
+        int blobSize() {
+            return blobSize;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            int offset = 0;
+            out.writeInt(offset);
+            for (byte[] bytes : encoded) {
+                offset += bytes.length;
+                out.writeInt(offset);
+            }
+            for (byte[] bytes : encoded) {
+                out.write(bytes);
+            }
+        }
+    }
+}
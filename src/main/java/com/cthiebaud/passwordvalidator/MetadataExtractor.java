@@ -4,19 +4,53 @@ import org.w3c.dom.*;
 
 import javax.xml.parsers.*;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class MetadataExtractor {
 
+    // Content-hash keyed cache of previously extracted POMs
+    static final String EXTRACTION_CACHE_FILE = ".metadata-cache.json";
+
+    static final String METADATA_FILE = "packages_metadata.yaml";
+
     public static void main(String[] args) {
         // Directory containing the POM files
         String pomDirPath = "downloaded_packages";
 
+        // Number of POM files parsed concurrently (--parallelism=N)
+        int parallelism = parseParallelism(args);
+
+        // Reuse results for POMs whose content has not changed (--no-cache to skip)
+        ExtractionCache cache = hasFlag(args, "--no-cache") ? null
+                : ExtractionCache.load(Path.of(EXTRACTION_CACHE_FILE));
+
+        extractDirectory(new File(pomDirPath), parallelism, cache);
+    }
+
+    /**
+     * Extracts the POM files of a directory, in name order, to
+     * {@value #METADATA_FILE} and its {@link MetadataCatalog}, then saves the
+     * cache. Projects are streamed to the YAML file as the results are replayed,
+     * in {@link YamlWriter#projectOrder(Collection)}.
+     *
+     * @param pomDir      The directory containing the POM files.
+     * @param parallelism The number of files parsed at the same time.
+     * @param cache       The extraction cache, or {@code null} to parse every file.
+     */
+    static void extractDirectory(File pomDir, int parallelism, ExtractionCache cache) {
         // Get the list of all .pom files in the directory
-        File pomDir = new File(pomDirPath);
         File[] pomFiles = pomDir.listFiles((_, name) -> name.endsWith(".pom"));
 
         if (pomFiles == null || pomFiles.length == 0) {
@@ -24,76 +58,225 @@ public class MetadataExtractor {
             return;
         }
 
+        // Process files in name order so that every run reports the same way
+        Arrays.sort(pomFiles);
+
+        // Use the YamlWriter to write developers, SCM URL, and version to a structured
+        // text file, one project at a time
+        Map<String, PomInfo> pomInfoByFile = null;
+        try (YamlWriter yaml = YamlWriter.begin(METADATA_FILE)) {
+            pomInfoByFile = extract(pomFiles, parallelism, cache, yaml);
+            yaml.end();
+        } catch (IOException e) {
+            System.out.println("Error writing to YAML file.");
+            e.printStackTrace();
+        }
+
+        if (cache != null) {
+            try {
+                cache.save();
+            } catch (IOException e) {
+                System.out.println("Error writing extraction cache: " + e.getMessage());
+            }
+            System.out.println(cache.stats());
+        }
+        if (pomInfoByFile == null) {
+            return;
+        }
+
+        // Same content, indexed for lookups without parsing the YAML
+        try {
+            MetadataCatalog.write(pomInfoByFile, Path.of(MetadataCatalog.CATALOG_FILE));
+            System.out.println("Metadata catalog written to: " + MetadataCatalog.CATALOG_FILE);
+        } catch (IOException e) {
+            System.out.println("Error writing metadata catalog: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Extracts POM information from the given files.
+     * <p>
+     * Files are parsed concurrently on a pool of {@code parallelism} threads. The
+     * console log, the duplicate-developer warnings and the returned map are then
+     * produced in the order of {@code pomFiles}, so the result is the same as a
+     * sequential run whatever the parallelism. Each project is given to
+     * {@code yaml} once its last file is replayed, in
+     * {@link YamlWriter#projectOrder(Collection)}: a project that comes early is
+     * held back until those before it in that order have been written.
+     *
+     * @param pomFiles    The POM files to process.
+     * @param parallelism The number of files parsed at the same time.
+     * @param cache       The extraction cache, or {@code null} to parse every file.
+     * @param yaml        The writer given each project, or {@code null}.
+     * @return The POM information keyed by project (file name without version).
+     */
+    public static Map<String, PomInfo> extract(File[] pomFiles, int parallelism, ExtractionCache cache,
+            YamlWriter yaml) throws IOException {
+        // Index of the first occurrence of each developer, shared by all workers
+        ConcurrentMap<String, DeveloperOccurrence> developerIndex = new ConcurrentHashMap<>();
+
+        List<Callable<ExtractionResult>> tasks = new ArrayList<>(pomFiles.length);
+        for (int i = 0; i < pomFiles.length; i++) {
+            int fileIndex = i;
+            tasks.add(() -> extractOne(pomFiles[fileIndex], fileIndex, cache, developerIndex));
+        }
+
+        List<ExtractionResult> results = new ArrayList<>(pomFiles.length);
+        try (ExecutorService pool = new ForkJoinPool(Math.max(1, parallelism))) {
+            for (Future<ExtractionResult> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while extracting POM files", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unexpected failure while extracting POM files", e.getCause());
+        }
+
+        return collect(results, developerIndex, yaml);
+    }
+
+    // Parse one POM file and register its developers in the shared index
+    private static ExtractionResult extractOne(File pomFile, int fileIndex, ExtractionCache cache,
+            ConcurrentMap<String, DeveloperOccurrence> developerIndex) {
+        try {
+            // Use filename (without extension) as the project key
+            String projectKey = extractArtifactIdFromFileName(pomFile.getName());
+            String version = extractVersionFromFileName(pomFile.getName());
+
+            // Parse the POM file in a single pass, unless its content is cached
+            PomInfo parsed = cache != null ? cache.parse(pomFile) : PomParser.parse(pomFile);
+            PomInfo info = new PomInfo(parsed.artifactId(), parsed.groupId(), version, parsed.developers(),
+                    parsed.scmUrl());
+
+            // Keep the earliest occurrence of each developer, as a sequential run would
+            List<Developer> developers = info.developers();
+            for (int i = 0; i < developers.size(); i++) {
+                String uniqueKey = uniqueKey(developers.get(i));
+                if (uniqueKey != null) {
+                    DeveloperOccurrence occurrence = new DeveloperOccurrence(ordinal(fileIndex, i),
+                            info.artifactId());
+                    developerIndex.merge(uniqueKey, occurrence,
+                            (a, b) -> a.ordinal() <= b.ordinal() ? a : b);
+                }
+            }
+
+            return new ExtractionResult(pomFile, fileIndex, projectKey, info, null);
+        } catch (Exception e) {
+            return new ExtractionResult(pomFile, fileIndex, null, null, e);
+        }
+    }
+
+    // Replay the results in file order: log, warn about duplicates, write and collect
+    private static Map<String, PomInfo> collect(List<ExtractionResult> results,
+            Map<String, DeveloperOccurrence> developerIndex, YamlWriter yaml) throws IOException {
         // Map to store developers, SCM URL, and version grouped by their artifact ID
         Map<String, PomInfo> pomInfoByFile = new TreeMap<>();
 
-        // Map to track developers across projects
-        Map<String, String> developerToProjectMap = new HashMap<>();
+        // A project with several POM files keeps its last one, as in the map
+        Map<String, Integer> lastFile = new HashMap<>();
+        for (ExtractionResult result : results) {
+            if (result.error() == null) {
+                lastFile.put(result.projectKey(), result.fileIndex());
+            }
+        }
+
+        // The keys are known before the replay, so the YAML order is too
+        List<String> yamlOrder = YamlWriter.projectOrder(lastFile.keySet());
+        Map<String, PomInfo> heldBack = new HashMap<>();
+        int written = 0;
 
         // ANSI escape code for orange (bright yellow)
         final String ORANGE = "\u001B[33m"; // Bright yellow color
         final String RESET = "\u001B[0m"; // Reset to default console color
 
-        // Process each .pom file
-        for (File pomFile : pomFiles) {
-            System.out.println("Processing: " + pomFile.getName());
-            try {
-                // Use filename (without extension) as the project key
-                String projectKey = extractArtifactIdFromFileName(pomFile.getName());
-                String version = extractVersionFromFileName(pomFile.getName());
-
-                // Parse the POM file
-                String artifactId = parsePOMForArtifactId(pomFile);
-                String groupId = parsePOMForGroupId(pomFile);
-                String scmUrl = parsePOMForScmUrl(pomFile);
-                List<Developer> developers = parsePOMForDevelopers(pomFile);
-
-                // Generate the alldevmails string
-                // Check for duplicate developers across projects
-                for (Developer developer : developers) {
-                    String uniqueKey = developer.id() != null ? developer.id() : developer.email();
-                    if (uniqueKey != null && developerToProjectMap.containsKey(uniqueKey)) {
-                        String existingProject = developerToProjectMap.get(uniqueKey);
-                        System.out.printf(
-                                ORANGE + "Warning: Developer %s (ID: %s) appears in multiple projects: %s and %s%n"
-                                        + RESET,
-                                developer.name(), developer.id(), existingProject, artifactId);
-                    } else if (uniqueKey != null) {
-                        developerToProjectMap.put(uniqueKey, artifactId);
-                    }
+        for (ExtractionResult result : results) {
+            System.out.println("Processing: " + result.pomFile().getName());
+            if (result.error() != null) {
+                Metrics.EXTRACTION_FAILURES.increment();
+                System.out.println("Error processing file: " + result.pomFile().getName());
+                result.error().printStackTrace();
+                continue;
+            }
+
+            PomInfo info = result.info();
+
+            // Check for duplicate developers across projects
+            List<Developer> developers = info.developers();
+            for (int i = 0; i < developers.size(); i++) {
+                Developer developer = developers.get(i);
+                String uniqueKey = uniqueKey(developer);
+                if (uniqueKey == null) {
+                    continue;
+                }
+                DeveloperOccurrence first = developerIndex.get(uniqueKey);
+                if (first.ordinal() < ordinal(result.fileIndex(), i)) {
+                    Metrics.DUPLICATE_DEVELOPERS.increment();
+                    System.out.printf(
+                            ORANGE + "Warning: Developer %s (ID: %s) appears in multiple projects: %s and %s%n"
+                                    + RESET,
+                            developer.name(), developer.id(), first.artifactId(), info.artifactId());
                 }
+            }
 
-                // Store the POM information
-                pomInfoByFile.put(projectKey,
-                        new PomInfo(artifactId, groupId, version, developers, scmUrl));
-            } catch (Exception e) {
-                System.out.println("Error processing file: " + pomFile.getName());
-                e.printStackTrace();
+            // Store the POM information
+            pomInfoByFile.put(result.projectKey(), info);
+            if (yaml != null && lastFile.get(result.projectKey()) == result.fileIndex()) {
+                heldBack.put(result.projectKey(), info);
+                while (written < yamlOrder.size() && heldBack.containsKey(yamlOrder.get(written))) {
+                    String key = yamlOrder.get(written++);
+                    yaml.write(key, heldBack.remove(key));
+                }
             }
         }
 
-        // Use the YamlWriter to write developers, SCM URL, and version to a structured
-        // text file
-        YamlWriter.writePomInfoToYamlFile(pomInfoByFile, "packages_metadata.yaml");
+        return pomInfoByFile;
+    }
+
+    // Developers are identified by id, or by email when they have no id
+    private static String uniqueKey(Developer developer) {
+        return developer.id() != null ? developer.id() : developer.email();
+    }
+
+    // Position of a developer in a sequential run: file first, then list order
+    private static long ordinal(int fileIndex, int developerIndex) {
+        return ((long) fileIndex << 32) | developerIndex;
+    }
+
+    private static boolean hasFlag(String[] args, String flag) {
+        return Arrays.asList(args).contains(flag);
+    }
+
+    // Parse the --parallelism=N argument, defaulting to the number of cores
+    private static int parseParallelism(String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith("--parallelism=")) {
+                return Integer.parseInt(arg.substring("--parallelism=".length()));
+            }
+        }
+        return Runtime.getRuntime().availableProcessors();
     }
 
-    // Parse the POM file to extract the artifactId
+    // Parse the POM file to extract the project-level artifactId
     public static String parsePOMForArtifactId(File pomFile) throws Exception {
-        return parseElementFromPOM(pomFile, "artifactId");
+        return PomParser.parse(pomFile).artifactId();
     }
 
-    // Parse the POM file to extract the groupId
+    // Parse the POM file to extract the project-level groupId (inherited from
+    // <parent> when not declared)
     public static String parsePOMForGroupId(File pomFile) throws Exception {
-        return parseElementFromPOM(pomFile, "groupId");
+        return PomParser.parse(pomFile).groupId();
     }
 
-    // Parse the POM file to extract the version
+    // Parse the POM file to extract the project-level version (inherited from
+    // <parent> when not declared)
     public static String parsePOMForVersion(File pomFile) throws Exception {
-        return parseElementFromPOM(pomFile, "version");
+        return PomParser.parse(pomFile).version();
     }
 
     // General method to parse a specific element (e.g., artifactId, groupId,
-    // version) from the POM file
+    // version) from the POM file. Returns the first match anywhere in the
+    // document; prefer PomParser for project-level fields.
     public static String parseElementFromPOM(File pomFile, String tagName) throws Exception {
         DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
         DocumentBuilder builder = factory.newDocumentBuilder();
@@ -140,65 +323,21 @@ public class MetadataExtractor {
 
     // Parse the POM file to extract developer information
     public static List<Developer> parsePOMForDevelopers(File pomFile) throws Exception {
-        List<Developer> developers = new ArrayList<>();
-
-        // Set up the XML parser
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        Document doc = builder.parse(pomFile);
-
-        // Normalize the XML structure
-        doc.getDocumentElement().normalize();
-
-        // Get all <developer> elements
-        NodeList developerNodes = doc.getElementsByTagName("developer");
-
-        for (int i = 0; i < developerNodes.getLength(); i++) {
-            Node developerNode = developerNodes.item(i);
-
-            if (developerNode.getNodeType() == Node.ELEMENT_NODE) {
-                Element developerElement = (Element) developerNode;
-
-                // Extract developer details
-                String id = getElementValue(developerElement, "id");
-                String name = getElementValue(developerElement, "name");
-                String email = getElementValue(developerElement, "email");
-
-                // Create a Developer record and add it to the list
-                developers.add(new Developer(id, name, email, pomFile.getName()));
-            }
-        }
-
-        return developers;
+        return PomParser.parse(pomFile).developers();
     }
 
     // Parse the POM file to extract the SCM URL
     public static String parsePOMForScmUrl(File pomFile) throws Exception {
-        // Set up the XML parser
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        Document doc = builder.parse(pomFile);
-
-        // Normalize the XML structure
-        doc.getDocumentElement().normalize();
-
-        // Locate the <scm> element
-        NodeList scmNodes = doc.getElementsByTagName("scm");
-        if (scmNodes != null && scmNodes.getLength() > 0) {
-            Element scmElement = (Element) scmNodes.item(0);
-            return getElementValue(scmElement, "url");
-        }
+        return PomParser.parse(pomFile).scmUrl();
+    }
 
-        return null; // Return null if <scm><url> is not found
+    // First place a developer was seen, as (file, position) ordinal and project
+    private record DeveloperOccurrence(long ordinal, String artifactId) {
     }
 
-    // Helper method to get the text content of an element
-    private static String getElementValue(Element parent, String tagName) {
-        NodeList nodeList = parent.getElementsByTagName(tagName);
-        if (nodeList != null && nodeList.getLength() > 0) {
-            return nodeList.item(0).getTextContent();
-        }
-        return null;
+    // Outcome of parsing one POM file
+    private record ExtractionResult(File pomFile, int fileIndex, String projectKey, PomInfo info,
+            Exception error) {
     }
 
     // Record for developer information
@@ -0,0 +1,338 @@
+package com.cthiebaud.passwordvalidator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Timers, counters and JFR events of a grading run.
+ * <p>
+ * Metrics are collected only when the {@code metrics.file} system property
+ * names a file; a snapshot is written there when the JVM exits, as JSON when
+ * the name ends with {@code .json} and in the Prometheus text format otherwise.
+ * {@link #ENABLED} is a constant, so that the JIT removes the timing and
+ * counting code when metrics are off.
+ * <p>
+ * The JFR events are independent of that property: they cost nothing unless a
+ * flight recording is running, e.g. with
+ * {@code -XX:StartFlightRecording=filename=run.jfr}.
+ */
+public final class Metrics {
+
+    private static final String FILE = System.getProperty("metrics.file", "");
+
+    /** Whether timers and counters record anything. */
+    public static final boolean ENABLED = !FILE.isBlank();
+
+    private static final String PREFIX = "password_validator_";
+    private static final List<Timer> TIMERS = new ArrayList<>();
+    private static final List<Counter> COUNTERS = new ArrayList<>();
+
+    public static final Timer GITHUB_REQUEST = timer("github_request",
+            "GitHub API request latency, until the response headers arrive");
+    public static final Timer ARTIFACT_REQUEST = timer("artifact_request",
+            "Maven repository request latency, until the response headers arrive");
+    public static final Timer POM_PARSE = timer("pom_parse",
+            "POM parse time per file; extraction cache hits are not parsed");
+    public static final Timer YAML_WRITE = timer("yaml_write", "Metadata YAML file write time");
+
+    public static final Counter PACKAGES_LISTED = counter("packages_listed", "Packages found by discovery");
+    public static final Counter PACKAGES_EXCLUDED = counter("packages_excluded", "Packages skipped by exclusions");
+    public static final Counter LISTING_FAILURES = counter("listing_failures",
+            "Packages whose latest version could not be fetched");
+    public static final Counter DOWNLOAD_FAILURES = counter("download_failures",
+            "Packages whose jar or POM could not be downloaded");
+    public static final Counter EXTRACTION_FAILURES = counter("extraction_failures",
+            "POM files that could not be extracted");
+    public static final Counter DUPLICATE_DEVELOPERS = counter("duplicate_developers",
+            "Developers found in more than one project");
+
+    static {
+        if (ENABLED) {
+            Runtime.getRuntime().addShutdownHook(new Thread(Metrics::export, "metrics-export"));
+        }
+    }
+
+    private Metrics() {
+    }
+
+    private static Timer timer(String name, String help) {
+        Timer timer = new Timer(name, help);
+        TIMERS.add(timer);
+        return timer;
+    }
+
+    private static Counter counter(String name, String help) {
+        Counter counter = new Counter(name, help);
+        COUNTERS.add(counter);
+        return counter;
+    }
+
+    /**
+     * Writes a snapshot of every timer and counter to the metrics file.
+     */
+    static void export() {
+        Path path = Path.of(FILE);
+        try {
+            String content = FILE.endsWith(".json") ? toJson() : toPrometheus();
+            Files.writeString(path, content);
+            System.out.println("Metrics written to " + path);
+        } catch (IOException e) {
+            System.err.println("Error writing metrics file: " + e.getMessage());
+        }
+    }
+
+    static String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        for (Timer timer : TIMERS) {
+            String name = PREFIX + timer.name + "_seconds";
+            out.append("# HELP ").append(name).append(' ').append(timer.help).append('\n');
+            out.append("# TYPE ").append(name).append(" histogram\n");
+            long cumulative = 0;
+            for (int i = 0; i < Timer.BUCKETS; i++) {
+                cumulative += timer.buckets[i].sum();
+                out.append(name).append("_bucket{le=\"").append(seconds(Timer.upperBound(i))).append("\"} ")
+                        .append(cumulative).append('\n');
+            }
+            out.append(name).append("_bucket{le=\"+Inf\"} ").append(timer.count.sum()).append('\n');
+            out.append(name).append("_sum ").append(seconds(timer.totalNanos.sum())).append('\n');
+            out.append(name).append("_count ").append(timer.count.sum()).append('\n');
+        }
+        for (Counter counter : COUNTERS) {
+            String name = PREFIX + counter.name + "_total";
+            out.append("# HELP ").append(name).append(' ').append(counter.help).append('\n');
+            out.append("# TYPE ").append(name).append(" counter\n");
+            out.append(name).append(' ').append(counter.value.sum()).append('\n');
+        }
+        return out.toString();
+    }
+
+    static String toJson() throws IOException {
+        Map<String, Object> timers = new LinkedHashMap<>();
+        for (Timer timer : TIMERS) {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("count", timer.count.sum());
+            snapshot.put("sumSeconds", secondsValue(timer.totalNanos.sum()));
+            snapshot.put("maxSeconds", secondsValue(timer.maxNanos.get()));
+            snapshot.put("p50Seconds", secondsValue(timer.quantile(0.50)));
+            snapshot.put("p95Seconds", secondsValue(timer.quantile(0.95)));
+            snapshot.put("p99Seconds", secondsValue(timer.quantile(0.99)));
+            timers.put(timer.name, snapshot);
+        }
+        Map<String, Object> counters = new LinkedHashMap<>();
+        for (Counter counter : COUNTERS) {
+            counters.put(counter.name, counter.value.sum());
+        }
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("timers", timers);
+        root.put("counters", counters);
+        return new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValueAsString(root);
+    }
+
+    private static double secondsValue(long nanos) {
+        return nanos / 1e9;
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.6f", nanos / 1e9);
+    }
+
+    /**
+     * A latency histogram with exponential buckets from 100 µs to about 52 s.
+     */
+    public static final class Timer {
+        static final int BUCKETS = 20;
+        private static final long FIRST_BOUND_NANOS = 100_000;
+
+        private final String name;
+        private final String help;
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+        private final LongAdder overflow = new LongAdder();
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private Timer(String name, String help) {
+            this.name = name;
+            this.help = help;
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        /** @return The start time to give to {@link #stop(long)}. */
+        public long start() {
+            return ENABLED ? System.nanoTime() : 0;
+        }
+
+        /** Records the time elapsed since {@code start}. */
+        public void stop(long start) {
+            if (ENABLED) {
+                record(System.nanoTime() - start);
+            }
+        }
+
+        void record(long nanos) {
+            // Bucket i holds durations up to FIRST_BOUND_NANOS * 2^i
+            int bucket = 64 - Long.numberOfLeadingZeros((Math.max(1, nanos) - 1) / FIRST_BOUND_NANOS);
+            (bucket < BUCKETS ? buckets[bucket] : overflow).increment();
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        static long upperBound(int bucket) {
+            return FIRST_BOUND_NANOS << bucket;
+        }
+
+        // Upper bound of the bucket holding the quantile, or the max past the last bucket
+        long quantile(double q) {
+            long total = count.sum();
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(q * total);
+            long cumulative = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                cumulative += buckets[i].sum();
+                if (cumulative >= rank) {
+                    return Math.min(upperBound(i), maxNanos.get());
+                }
+            }
+            return maxNanos.get();
+        }
+    }
+
+    /**
+     * A monotonic counter.
+     */
+    public static final class Counter {
+        private final String name;
+        private final String help;
+        private final LongAdder value = new LongAdder();
+
+        private Counter(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+
+        public void increment() {
+            if (ENABLED) {
+                value.increment();
+            }
+        }
+
+        public void add(long n) {
+            if (ENABLED) {
+                value.add(n);
+            }
+        }
+    }
+
+    /**
+     * An HTTP request, until its response headers arrive; also recorded by a
+     * {@link Timer}.
+     */
+    @Name("com.cthiebaud.passwordvalidator.HttpRequest")
+    @Label("HTTP Request")
+    @Category("Password Validator")
+    @StackTrace(false)
+    static final class HttpRequestEvent extends Event {
+        @Label("URI")
+        String uri;
+
+        @Label("Status")
+        int status;
+
+        private final transient Timer timer;
+        private transient long start;
+
+        HttpRequestEvent(Timer timer, String uri) {
+            this.timer = timer;
+            this.uri = uri;
+        }
+
+        void start() {
+            start = timer.start();
+            begin();
+        }
+
+        /** @param status The response status, or -1 when the request failed. */
+        void finish(int status) {
+            timer.stop(start);
+            this.status = status;
+            commit();
+        }
+    }
+
+    /**
+     * The parsing of one POM. Extraction cache hits are not parsed, so they
+     * are not recorded.
+     */
+    @Name("com.cthiebaud.passwordvalidator.PomParse")
+    @Label("POM Parse")
+    @Category("Password Validator")
+    @StackTrace(false)
+    static final class PomParseEvent extends Event {
+        @Label("File")
+        String file;
+
+        private transient long start;
+
+        PomParseEvent(String file) {
+            this.file = file;
+            start = POM_PARSE.start();
+            begin();
+        }
+
+        void finish() {
+            POM_PARSE.stop(start);
+            commit();
+        }
+    }
+
+    /**
+     * The writing of a metadata YAML file.
+     */
+    @Name("com.cthiebaud.passwordvalidator.YamlWrite")
+    @Label("YAML Write")
+    @Category("Password Validator")
+    @StackTrace(false)
+    static final class YamlWriteEvent extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Projects")
+        int projects;
+
+        private transient long start;
+
+        YamlWriteEvent(String file) {
+            this.file = file;
+            start = YAML_WRITE.start();
+            begin();
+        }
+
+        void finish(int projects) {
+            YAML_WRITE.stop(start);
+            this.projects = projects;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.cthiebaud.passwordvalidator;
+
+import com.cthiebaud.passwordvalidator.GitHubApiClient.ApiResponse;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lists the Maven packages of a GitHub organization with their latest version.
+ * <p>
+ * Follows the {@code Link} pagination of the packages endpoint and fetches the
+ * versions of each package concurrently through a {@link GitHubApiClient}.
+ * Version requests start as soon as the page listing their package arrives.
+ * Responses are decoded with a streaming {@link JsonParser} that keeps only the
+ * fields used here and never builds a JSON tree.
+ */
+public class PackageDiscovery {
+
+    /** Default GitHub REST API root. */
+    public static final String GITHUB_API_URL = "https://api.github.com";
+
+    // Largest page size the packages endpoint accepts
+    private static final int PAGE_SIZE = 100;
+
+    private static final Pattern NEXT_LINK = Pattern.compile("<([^>]+)>\\s*;\\s*rel=\"next\"");
+
+    private final GitHubApiClient client;
+    private final String apiBase;
+    private final String owner;
+    // Parsers must not close the body: the API client may still drain it into the cache
+    private final JsonFactory jsonFactory = JsonFactory.builder()
+            .disable(StreamReadFeature.AUTO_CLOSE_SOURCE)
+            .build();
+
+    /**
+     * @param client  The API client used for every request.
+     * @param apiBase The API root, e.g. {@value #GITHUB_API_URL}.
+     * @param owner   The GitHub organization.
+     */
+    public PackageDiscovery(GitHubApiClient client, URI apiBase, String owner) {
+        this.client = client;
+        this.apiBase = apiBase.toString().replaceAll("/+$", "");
+        this.owner = owner;
+    }
+
+    /**
+     * Discovers every package of the organization with its latest version.
+     *
+     * @param onPackage Called with each package as soon as its version is known,
+     *                  possibly from several threads.
+     * @return The packages, in completion order; completes exceptionally when a
+     *         page of the package list cannot be fetched.
+     */
+    public CompletableFuture<List<DiscoveredPackage>> discover(Consumer<DiscoveredPackage> onPackage) {
+        URI firstPage = URI.create(String.format("%s/orgs/%s/packages?package_type=maven&per_page=%d",
+                apiBase, owner, PAGE_SIZE));
+        List<DiscoveredPackage> packages = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> versionFetches = Collections.synchronizedList(new ArrayList<>());
+
+        return fetchPages(firstPage, packageName -> versionFetches.add(
+                fetchLatestVersion(packageName).thenAccept(version -> {
+                    DiscoveredPackage discovered = new DiscoveredPackage(packageName, version);
+                    packages.add(discovered);
+                    Metrics.PACKAGES_LISTED.increment();
+                    onPackage.accept(discovered);
+                })))
+                .thenCompose(_ -> CompletableFuture.allOf(versionFetches.toArray(CompletableFuture[]::new)))
+                .thenApply(_ -> List.copyOf(packages));
+    }
+
+    // Fetch one page of packages, hand each name over, then follow the next link
+    private CompletableFuture<Void> fetchPages(URI pageUri, Consumer<String> onPackageName) {
+        return client.get(pageUri, this::decodePackages).thenCompose(response -> {
+            if (response.statusCode() != 200) {
+                throw new DiscoveryException(String.format("Failed to fetch packages: %d%nResponse: %s",
+                        response.statusCode(), response.error()));
+            }
+            for (PackageEntry entry : response.value()) {
+                onPackageName.accept(entry.name());
+            }
+            return nextPage(response)
+                    .map(next -> fetchPages(next, onPackageName))
+                    .orElse(CompletableFuture.completedFuture(null));
+        });
+    }
+
+    // Fetch the latest version name of a package, or a placeholder on failure
+    private CompletableFuture<String> fetchLatestVersion(String packageName) {
+        // Versions come newest first: one is all we need
+        URI versionsUri = URI.create(String.format("%s/orgs/%s/packages/maven/%s/versions?per_page=1", apiBase,
+                owner, packageName));
+
+        return client.get(versionsUri, this::decodeLatestVersion).thenApply(response -> {
+            if (response.statusCode() == 200) {
+                // Latest version, if any
+                return response.value() != null ? response.value() : "no-version";
+            } else {
+                // Log errors and return fallback value
+                Metrics.LISTING_FAILURES.increment();
+                System.err.println("Failed to fetch versions for package: " + packageName);
+                System.err.println("Response: " + response.error());
+                return "error-fetching-version";
+            }
+        }).exceptionally(e -> {
+            Metrics.LISTING_FAILURES.increment();
+            System.err.println("Failed to fetch versions for package: " + packageName);
+            System.err.println("Error: " + e.getMessage());
+            return "error-fetching-version";
+        });
+    }
+
+    // Stream a page of packages, keeping only the fields of PackageEntry
+    List<PackageEntry> decodePackages(InputStream body) throws IOException {
+        List<PackageEntry> entries = new ArrayList<>();
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            expect(parser, JsonToken.START_ARRAY);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                String name = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    if ("name".equals(field)) {
+                        name = parser.getValueAsString();
+                    } else {
+                        parser.skipChildren(); // owner, repository, ...
+                    }
+                }
+                if (name == null) {
+                    throw new JsonParseException(parser, "Package entry without a name");
+                }
+                entries.add(new PackageEntry(name));
+            }
+        }
+        return entries;
+    }
+
+    // Stream a version list up to the name of its first element, or null if empty
+    String decodeLatestVersion(InputStream body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            expect(parser, JsonToken.START_ARRAY);
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null; // No versions available
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("name".equals(field)) {
+                    return parser.getValueAsString(); // Latest version; the rest is never read
+                }
+                parser.skipChildren();
+            }
+            throw new JsonParseException(parser, "Version entry without a name");
+        }
+    }
+
+    private static void expect(JsonParser parser, JsonToken token) throws IOException {
+        if (parser.nextToken() != token) {
+            throw new JsonParseException(parser, "Expected " + token + " but got " + parser.currentToken());
+        }
+    }
+
+    // The rel="next" target of the Link header, if any
+    static Optional<URI> nextPage(ApiResponse<?> response) {
+        return Optional.ofNullable(response.link()).flatMap(link -> {
+            Matcher matcher = NEXT_LINK.matcher(link);
+            return matcher.find() ? Optional.of(URI.create(matcher.group(1))) : Optional.empty();
+        });
+    }
+
+    // The fields of a package listing entry that discovery uses
+    record PackageEntry(String name) {
+    }
+
+    /**
+     * A package and its latest version. Package names follow the
+     * {@code groupId.artifactId} convention of GitHub's Maven registry.
+     */
+    public record DiscoveredPackage(String name, String version) {
+
+        public String groupId() {
+            int dot = name.lastIndexOf('.');
+            return dot < 0 ? "" : name.substring(0, dot);
+        }
+
+        public String artifactId() {
+            return name.substring(name.lastIndexOf('.') + 1);
+        }
+
+        /** @return {@code groupId:artifactId}, as listed in the exclusions. */
+        public String artifact() {
+            return String.format("%s:%s", groupId(), artifactId());
+        }
+
+        /** @return {@code groupId:artifactId:version}, as written to packages.txt. */
+        public String coordinates() {
+            return String.format("%s:%s:%s", groupId(), artifactId(), version);
+        }
+    }
+
+    /** Thrown when the package list itself cannot be fetched. */
+    public static class DiscoveryException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public DiscoveryException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.cthiebaud.passwordvalidator;
+
+import com.cthiebaud.passwordvalidator.ArtifactDownloader.ArtifactResult;
+import com.cthiebaud.passwordvalidator.ArtifactDownloader.PackageResult;
+
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Lists, downloads and extracts the packages in a single process.
+ * <p>
+ * Runs {@link GitHubPackagesLister}, {@link ArtifactDownloader} and
+ * {@link MetadataExtractor} as overlapping stages rather than one after the
+ * other: each package is queued for download as soon as discovery finds it,
+ * and each downloaded POM is queued for extraction, while other packages are
+ * still being listed. Stages are connected by bounded queues, so a slow stage
+ * holds back the one before it, and each stage runs on its own number of
+ * workers. Discovery callbacks, which run on HTTP client threads, never wait
+ * on a full queue: their packages go through an unbounded intake. A package
+ * that fails in a stage is reported and the others go on.
+ * <p>
+ * Once every stage has drained, {@code packages.txt}, the content of
+ * {@code downloaded_packages} and {@code packages_metadata.yaml} are written
+ * as the staged run writes them: the final extraction goes through
+ * {@link MetadataExtractor#extractDirectory}, whose cache the extraction stage
+ * has filled. When the package list cannot be fetched, the packages found so
+ * far have already been downloaded to {@code downloaded_packages}, but
+ * {@code packages.txt} and {@code packages_metadata.yaml} are left as they
+ * were and no stale file is pruned.
+ * <p>
+ * Usage: {@code PackagePipeline [--repository=URL] [--download-parallelism=N]
+ * [--extract-parallelism=N] [--queue=N]}; the {@code github.*} system
+ * properties of {@link GitHubPackagesLister} apply.
+ */
+public class PackagePipeline {
+
+    // Packages downloaded at the same time; each waits on a few sequential
+    // requests, so as many as the requests allowed in flight keeps them busy
+    private static final int DEFAULT_DOWNLOAD_PARALLELISM = ArtifactDownloader.DEFAULT_MAX_IN_FLIGHT;
+
+    // Capacity of the queues between stages
+    private static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+    public static void main(String[] args) throws Exception {
+        String repositoryUrl = ArtifactDownloader.REPOSITORY_URL;
+        int downloadParallelism = DEFAULT_DOWNLOAD_PARALLELISM;
+        int extractParallelism = Runtime.getRuntime().availableProcessors();
+        int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        for (String arg : args) {
+            if (arg.startsWith("--repository=")) {
+                repositoryUrl = arg.substring("--repository=".length());
+            } else if (arg.startsWith("--download-parallelism=")) {
+                downloadParallelism = Integer.parseInt(arg.substring("--download-parallelism=".length()));
+            } else if (arg.startsWith("--extract-parallelism=")) {
+                extractParallelism = Integer.parseInt(arg.substring("--extract-parallelism=".length()));
+            } else if (arg.startsWith("--queue=")) {
+                queueCapacity = Integer.parseInt(arg.substring("--queue=".length()));
+            }
+        }
+
+        Set<String> exclusions = GitHubPackagesLister.loadExclusions("exclusions.yaml");
+        String token = GitHubPackagesLister.loadToken("src/main/resources/github-token.txt");
+        if (token == null || token.isBlank()) {
+            System.err.println("GitHub token is invalid or missing. Exiting.");
+            return;
+        }
+
+        // Same settings as GitHubPackagesLister
+        URI apiUrl = URI.create(System.getProperty("github.api.url", PackageDiscovery.GITHUB_API_URL));
+        int maxInFlight = Integer.getInteger("github.maxInFlight", GitHubPackagesLister.DEFAULT_MAX_IN_FLIGHT);
+        String cacheDir = System.getProperty("github.cache.dir", GitHubPackagesLister.DEFAULT_CACHE_DIR);
+        HttpResponseCache httpCache = cacheDir.isBlank() ? null : new HttpResponseCache(Path.of(cacheDir));
+
+        Path outputDir = Path.of(AcceptanceRunner.DOWNLOADED_DIR);
+        Files.createDirectories(outputDir);
+        ExtractionCache extractionCache = ExtractionCache.load(Path.of(MetadataExtractor.EXTRACTION_CACHE_FILE));
+
+        ExecutorService io = Executors.newCachedThreadPool(runnable -> Thread.ofPlatform().daemon()
+                .name("artifact-io").unstarted(runnable));
+        try {
+            GitHubApiClient client = new GitHubApiClient(HttpClient.newHttpClient(), token, maxInFlight, httpCache,
+                    new RateLimitScheduler(), io);
+            PackageDiscovery discovery = new PackageDiscovery(client, apiUrl, GitHubPackagesLister.OWNER);
+            MavenRepository repository = MavenRepository.of(URI.create(repositoryUrl),
+                    ArtifactDownloader.REPOSITORY_USER, token,
+                    HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build(), io);
+            ArtifactDownloader downloader = new ArtifactDownloader(repository, outputDir,
+                    ArtifactDownloader.DEFAULT_MAX_IN_FLIGHT, io);
+
+            long start = System.nanoTime();
+            Set<String> lines = new ConcurrentSkipListSet<>();
+            List<PackageResult> downloads = Collections.synchronizedList(new ArrayList<>());
+
+            Stage<Path> extraction = new Stage<>("extract", queueCapacity, extractParallelism,
+                    pom -> extractionCache.parse(pom.toFile()));
+            Stage<String> download = new Stage<>("download", queueCapacity, downloadParallelism, coordinates -> {
+                PackageResult result = downloader.download(coordinates).join();
+                downloads.add(result);
+                synchronized (System.out) {
+                    result.log().forEach(System.out::println);
+                }
+                for (ArtifactResult artifact : result.artifacts()) {
+                    if (artifact.file().getFileName().toString().endsWith(".pom")) {
+                        extraction.submit(artifact.file());
+                    }
+                }
+            });
+
+            boolean listed;
+            try {
+                discovery.discover(discovered -> {
+                    System.out.println("Found package: " + discovered.coordinates());
+                    if (exclusions.contains(discovered.artifact())) {
+                        Metrics.PACKAGES_EXCLUDED.increment();
+                        System.out.printf("Skipping package: %s (excluded)\n", discovered.coordinates());
+                    } else if (lines.add(discovered.coordinates())) {
+                        // Runs on HTTP client threads: hand over without waiting for room
+                        download.offer(discovered.coordinates());
+                    }
+                }).join();
+                listed = true;
+            } catch (CompletionException e) {
+                System.err.println(e.getCause().getMessage());
+                listed = false;
+            }
+            download.finish();
+            extraction.finish();
+            System.out.printf("Stages drained in %.1f s: %s, %s%n", (System.nanoTime() - start) / 1e9,
+                    download.stats(), extraction.stats());
+
+            if (!listed) {
+                System.err.println("Package list incomplete: " + ArtifactDownloader.PACKAGES_FILE + " and "
+                        + MetadataExtractor.METADATA_FILE + " left as they were; " + outputDir
+                        + " has the packages found so far and was not pruned.");
+                return;
+            }
+
+            try (PrintWriter writer = new PrintWriter(ArtifactDownloader.PACKAGES_FILE)) {
+                lines.forEach(writer::println);
+            }
+            System.out.println("Package list written to " + ArtifactDownloader.PACKAGES_FILE);
+
+            downloader.pruneStale(downloads);
+            long failed = downloads.stream().filter(result -> result.error() != null).count();
+            System.out.printf("All packages downloaded to %s (%d packages failed)%n", outputDir, failed);
+
+            MetadataExtractor.extractDirectory(outputDir.toFile(), extractParallelism, extractionCache);
+        } finally {
+            io.shutdownNow();
+        }
+    }
+
+    /**
+     * A pipeline stage: workers taking items from a bounded queue, and a feeder
+     * moving items from an unbounded intake to the queue as it has room.
+     *
+     * @param <T> The type of the items.
+     */
+    static final class Stage<T> {
+
+        // Tells a worker there are no more items
+        private static final Object END = new Object();
+
+        private final String name;
+        private final BlockingQueue<Object> queue;
+        private final BlockingQueue<Object> intake = new LinkedBlockingQueue<>();
+        private final Thread feeder;
+        private final Handler<T> handler;
+        private final List<Thread> workers;
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+
+        /**
+         * Starts the workers of a stage.
+         *
+         * @param name        The stage name, for logs and thread names.
+         * @param capacity    The number of items that can wait in the queue.
+         * @param parallelism The number of workers.
+         * @param handler     Processes one item; what it throws is reported and
+         *                    does not stop the stage.
+         */
+        Stage(String name, int capacity, int parallelism, Handler<T> handler) {
+            this.name = name;
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+            this.handler = handler;
+            this.workers = IntStream.range(0, Math.max(1, parallelism))
+                    .mapToObj(i -> Thread.ofPlatform().daemon().name(name + "-" + i).start(this::work))
+                    .toList();
+            this.feeder = Thread.ofPlatform().daemon().name(name + "-intake").start(this::feed);
+        }
+
+        /**
+         * Queues an item, waiting while the queue is full.
+         *
+         * @param item The item.
+         */
+        void submit(T item) {
+            try {
+                queue.put(item);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while queueing " + item + " for " + name);
+            }
+        }
+
+        /**
+         * Queues an item without waiting, for callers that must not block, such
+         * as completion callbacks. The item waits in the intake until the queue
+         * has room.
+         *
+         * @param item The item.
+         */
+        void offer(T item) {
+            intake.add(item);
+        }
+
+        /**
+         * Lets the workers finish the offered and queued items, then waits for
+         * them.
+         */
+        void finish() throws InterruptedException {
+            intake.add(END);
+            feeder.join();
+            for (int i = 0; i < workers.size(); i++) {
+                queue.put(END);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+
+        /**
+         * @return A one-line summary of the items processed and time spent.
+         */
+        String stats() {
+            return String.format("%s %d items (%d failed, %.1f s busy)", name, processed.sum(), failed.sum(),
+                    busyNanos.sum() / 1e9);
+        }
+
+        private void feed() {
+            try {
+                for (Object item = intake.take(); item != END; item = intake.take()) {
+                    queue.put(item);
+                }
+            } catch (InterruptedException e) {
+                // Shutting down
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void work() {
+            while (true) {
+                Object item;
+                try {
+                    item = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (item == END) {
+                    return;
+                }
+                long start = System.nanoTime();
+                try {
+                    handler.handle((T) item);
+                } catch (Exception e) {
+                    failed.increment();
+                    System.err.println("Stage " + name + " failed for " + item + ": " + e);
+                } finally {
+                    processed.increment();
+                    busyNanos.add(System.nanoTime() - start);
+                }
+            }
+        }
+    }
+
+    /**
+     * Processes one item of a stage.
+     *
+     * @param <T> The type of the items.
+     */
+    @FunctionalInterface
+    interface Handler<T> {
+        void handle(T item) throws Exception;
+    }
+}
@@ -0,0 +1,201 @@
+package com.cthiebaud.passwordvalidator;
+
+import com.cthiebaud.passwordvalidator.MetadataExtractor.Developer;
+import com.cthiebaud.passwordvalidator.MetadataExtractor.PomInfo;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Single-pass streaming parser for POM files.
+ * <p>
+ * Reads each file once with StAX and collects every field needed for a
+ * {@link PomInfo}, without building a DOM. Elements are matched by their path
+ * from the document root, so {@code <artifactId>} inside {@code <parent>} or
+ * {@code <dependency>} never shadows the project's own coordinates.
+ * <p>
+ * On POMs whose fields are where Maven puts them, the result is the one of the
+ * former DOM lookups, which took the first element of each name anywhere in
+ * the document; {@code PomParserTest} checks this on sample POMs. The intended
+ * differences are:
+ * <ul>
+ * <li>{@code artifactId}, {@code groupId} and {@code version} are the
+ * project's own: with a {@code <parent>} block first, the DOM lookups returned
+ * the parent's coordinates.</li>
+ * <li>{@code groupId} and {@code version} fall back to the parent's when the
+ * project does not declare them, and are {@code null} otherwise, where the DOM
+ * lookups returned those of the first dependency or plugin.</li>
+ * <li>{@code scmUrl} is {@code project/scm/url} and developers are the
+ * {@code project/developers/developer} elements, with their direct
+ * {@code id}, {@code name} and {@code email} children only.</li>
+ * <li>DTDs are not supported, so a POM using entities declared in its
+ * {@code DOCTYPE} is rejected rather than expanded.</li>
+ * </ul>
+ */
+public class PomParser {
+
+    // Element paths, relative to the document root
+    private static final String PROJECT_ARTIFACT_ID = "project/artifactId";
+    private static final String PROJECT_GROUP_ID = "project/groupId";
+    private static final String PROJECT_VERSION = "project/version";
+    private static final String PARENT_GROUP_ID = "project/parent/groupId";
+    private static final String PARENT_VERSION = "project/parent/version";
+    private static final String SCM_URL = "project/scm/url";
+    private static final String DEVELOPER = "project/developers/developer";
+    private static final String DEVELOPER_ID = DEVELOPER + "/id";
+    private static final String DEVELOPER_NAME = DEVELOPER + "/name";
+    private static final String DEVELOPER_EMAIL = DEVELOPER + "/email";
+
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private PomParser() {
+    }
+
+    /**
+     * Parses the given POM file.
+     *
+     * @param pomFile The POM file to parse.
+     * @return The POM information; {@code version} is the project version, or the
+     *         parent version when the project does not declare one.
+     */
+    public static PomInfo parse(File pomFile) throws IOException, XMLStreamException {
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(pomFile.toPath()))) {
+            return parse(input, pomFile.getName());
+        }
+    }
+
+    /**
+     * Parses a POM from the given stream.
+     *
+     * @param input       The POM content; not closed by this method.
+     * @param pomFileName The file name recorded on each {@link Developer}.
+     * @return The POM information.
+     */
+    public static PomInfo parse(InputStream input, String pomFileName) throws XMLStreamException {
+        // Timed here so that extraction cache hits, which skip parsing, are not counted
+        Metrics.PomParseEvent event = new Metrics.PomParseEvent(pomFileName);
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(input);
+        try {
+            PomInfo info = parse(reader, pomFileName);
+            event.finish();
+            return info;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static PomInfo parse(XMLStreamReader reader, String pomFileName) throws XMLStreamException {
+        String artifactId = null;
+        String groupId = null;
+        String version = null;
+        String parentGroupId = null;
+        String parentVersion = null;
+        String scmUrl = null;
+        List<Developer> developers = new ArrayList<>();
+
+        // Current developer being read
+        String devId = null;
+        String devName = null;
+        String devEmail = null;
+
+        // Current element path, with the path length at each depth so we can pop
+        StringBuilder path = new StringBuilder(64);
+        int[] lengths = new int[16];
+        int depth = 0;
+
+        // Path and text of the element currently being captured, if any
+        StringBuilder text = new StringBuilder();
+        String captured = null;
+
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT -> {
+                    if (depth == lengths.length) {
+                        lengths = Arrays.copyOf(lengths, depth * 2);
+                    }
+                    lengths[depth++] = path.length();
+                    if (!path.isEmpty()) {
+                        path.append('/');
+                    }
+                    path.append(reader.getLocalName());
+
+                    // Everything we read sits at most four levels deep
+                    String current = depth <= 4 ? path.toString() : null;
+                    if (current != null && isCaptured(current)) {
+                        captured = current;
+                        text.setLength(0);
+                    } else if (DEVELOPER.contentEquals(path)) {
+                        devId = null;
+                        devName = null;
+                        devEmail = null;
+                    }
+                }
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> {
+                    if (captured != null) {
+                        text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                }
+                case XMLStreamConstants.END_ELEMENT -> {
+                    if (captured != null) {
+                        String value = text.toString();
+                        switch (captured) {
+                            case PROJECT_ARTIFACT_ID -> artifactId = value;
+                            case PROJECT_GROUP_ID -> groupId = value;
+                            case PROJECT_VERSION -> version = value;
+                            case PARENT_GROUP_ID -> parentGroupId = value;
+                            case PARENT_VERSION -> parentVersion = value;
+                            case SCM_URL -> scmUrl = value;
+                            case DEVELOPER_ID -> devId = value;
+                            case DEVELOPER_NAME -> devName = value;
+                            case DEVELOPER_EMAIL -> devEmail = value;
+                            default -> {
+                            }
+                        }
+                        captured = null;
+                    } else if (DEVELOPER.contentEquals(path)) {
+                        developers.add(new Developer(devId, devName, devEmail, pomFileName));
+                    }
+                    path.setLength(lengths[--depth]);
+                }
+                default -> {
+                }
+            }
+        }
+
+        // groupId and version are inherited from <parent> when not declared
+        return new PomInfo(artifactId,
+                groupId != null ? groupId : parentGroupId,
+                version != null ? version : parentVersion,
+                developers, scmUrl);
+    }
+
+    // Whether the text of the element at the given path is collected
+    private static boolean isCaptured(String path) {
+        return switch (path) {
+            case PROJECT_ARTIFACT_ID, PROJECT_GROUP_ID, PROJECT_VERSION, PARENT_GROUP_ID, PARENT_VERSION,
+                    SCM_URL, DEVELOPER_ID, DEVELOPER_NAME, DEVELOPER_EMAIL ->
+                true;
+            default -> false;
+        };
+    }
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        // POMs never need a DTD; refuse external entities
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+}
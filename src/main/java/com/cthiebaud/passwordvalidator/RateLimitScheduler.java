@@ -0,0 +1,102 @@
+package com.cthiebaud.passwordvalidator;
+
+import java.net.http.HttpHeaders;
+import java.time.Clock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spaces out API requests according to the {@code X-RateLimit-Remaining} and
+ * {@code X-RateLimit-Reset} headers of the responses.
+ * <p>
+ * While plenty of quota is left, requests go out immediately. Below
+ * {@code lowWatermark} remaining requests, the time left until the reset is
+ * spread evenly over the remaining quota. Once the quota is exhausted, requests
+ * wait for the reset.
+ */
+public class RateLimitScheduler {
+
+    /** Remaining quota below which requests are spaced out. */
+    public static final int DEFAULT_LOW_WATERMARK = 100;
+
+    private final int lowWatermark;
+    private final Clock clock;
+
+    // Last known quota; -1 until the first response is seen
+    private long remaining = -1;
+    private long resetEpochMillis;
+
+    // Earliest time the next request may be sent
+    private long nextSlotMillis;
+
+    public RateLimitScheduler() {
+        this(DEFAULT_LOW_WATERMARK, Clock.systemUTC());
+    }
+
+    public RateLimitScheduler(int lowWatermark, Clock clock) {
+        this.lowWatermark = lowWatermark;
+        this.clock = clock;
+    }
+
+    /**
+     * Reserves a slot for the next request.
+     *
+     * @return A future completing when the request may be sent.
+     */
+    public CompletableFuture<Void> acquire() {
+        long delay = reserve();
+        if (delay <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> {
+        }, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Records the rate-limit headers of a response.
+     *
+     * @param headers The response headers.
+     */
+    public synchronized void update(HttpHeaders headers) {
+        headers.firstValueAsLong("X-RateLimit-Remaining").ifPresent(value -> remaining = value);
+        headers.firstValueAsLong("X-RateLimit-Reset").ifPresent(value -> resetEpochMillis = value * 1000);
+    }
+
+    /**
+     * Computes how long to wait before retrying a request the server rejected
+     * because of rate limiting ({@code 403} or {@code 429}).
+     *
+     * @param headers The headers of the rejected response.
+     * @return The delay in milliseconds, or {@code -1} when the rejection is not
+     *         about rate limiting.
+     */
+    public synchronized long retryDelay(HttpHeaders headers) {
+        var retryAfter = headers.firstValueAsLong("Retry-After");
+        if (retryAfter.isPresent()) {
+            return retryAfter.getAsLong() * 1000;
+        }
+        if (headers.firstValueAsLong("X-RateLimit-Remaining").orElse(-1) == 0) {
+            return Math.max(0, resetEpochMillis - clock.millis());
+        }
+        return -1;
+    }
+
+    // Delay before the next request, advancing the next free slot
+    private synchronized long reserve() {
+        long now = clock.millis();
+        long interval;
+        if (remaining < 0 || remaining > lowWatermark || now >= resetEpochMillis) {
+            interval = 0;
+        } else if (remaining == 0) {
+            // Quota exhausted: nothing goes out before the reset
+            nextSlotMillis = Math.max(nextSlotMillis, resetEpochMillis);
+            interval = 0;
+        } else {
+            interval = (resetEpochMillis - now) / remaining;
+            remaining--;
+        }
+        long slot = Math.max(now, nextSlotMillis);
+        nextSlotMillis = slot + interval;
+        return slot - now;
+    }
+}
@@ -0,0 +1,455 @@
+package com.cthiebaud.passwordvalidator;
+
+import com.cthiebaud.passwordvalidator.AcceptanceRunner.AcceptanceResult;
+import com.cthiebaud.passwordvalidator.AcceptanceRunner.CheckResult;
+import com.cthiebaud.passwordvalidator.AcceptanceRunner.Outcome;
+import com.cthiebaud.passwordvalidator.MetadataExtractor.PomInfo;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Append-only history of acceptance runs, kept in {@value #STORE_FILE}.
+ * <p>
+ * Every run of a student jar is one line of JSON: the run it belongs to, the
+ * project and its coordinates from {@code packages_metadata.yaml}, the
+ * SHA-256 of the jar, the version of the reference {@code password-validator}
+ * it ran against, and the outcome, duration and checks. Lines are only ever
+ * appended. Opening the store reads the file once to index the offset of each
+ * project's records, records are read back from there when needed, and a torn
+ * last line, left by a crash during an append, is cut off.
+ * <p>
+ * Usage: {@code ResultStore [diff [RUN] | latest | history PROJECT]}. With
+ * {@code diff}, the default, each project tested in the last run, or in
+ * {@code RUN}, is compared with its previous record; {@code latest} lists the
+ * last record of every project and {@code history} every record of the
+ * projects whose key contains {@code PROJECT}.
+ */
+public class ResultStore implements Closeable {
+
+    static final String STORE_FILE = "acceptance_history.jsonl";
+
+    private static final ObjectMapper JSON = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private final Path path;
+    private final FileChannel channel;
+    // Offsets of the records of each project, oldest first
+    private final Map<String, List<Entry>> index = new TreeMap<>();
+    private String lastRun;
+
+    private ResultStore(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens the store, creating its file if needed, and indexes its records.
+     *
+     * @param path The store file.
+     * @return The open store.
+     */
+    public static ResultStore open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        ResultStore store = new ResultStore(path, channel);
+        try {
+            store.load();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return store;
+    }
+
+    // Indexes every complete line, and cuts off what follows the last one
+    private void load() throws IOException {
+        long size = channel.size();
+        long offset = 0;
+        long valid = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        long position = 0;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                position++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                Record record;
+                try {
+                    record = JSON.readValue(line.toByteArray(), Record.class);
+                } catch (IOException e) {
+                    System.out.println("Skipping unreadable record at offset " + offset + " of " + path + ": "
+                            + e.getMessage());
+                    record = null;
+                }
+                if (record != null && record.project() != null) {
+                    index.computeIfAbsent(record.project(), _ -> new ArrayList<>())
+                            .add(new Entry(offset, record.run()));
+                    lastRun = record.run();
+                }
+                line.reset();
+                offset = position;
+                valid = position;
+            }
+        }
+        if (valid < size) {
+            System.out.println("Truncating incomplete last record of " + path);
+            channel.truncate(valid);
+        }
+    }
+
+    /**
+     * Appends a record; the run is made durable by {@link #close()}.
+     *
+     * @param record The record.
+     */
+    public void append(Record record) throws IOException {
+        byte[] json = JSON.writeValueAsBytes(record);
+        ByteBuffer buffer = ByteBuffer.allocate(json.length + 1).put(json).put((byte) '\n').flip();
+        long offset = channel.size();
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        index.computeIfAbsent(record.project(), _ -> new ArrayList<>()).add(new Entry(offset, record.run()));
+        lastRun = record.run();
+    }
+
+    /**
+     * @param project The project key.
+     * @return The most recent record of the project, if any.
+     */
+    public Optional<Record> latest(String project) throws IOException {
+        List<Entry> entries = index.get(project);
+        return entries == null ? Optional.empty() : Optional.of(read(entries.get(entries.size() - 1).offset()));
+    }
+
+    /**
+     * @param project The project key.
+     * @return Every record of the project, oldest first.
+     */
+    public List<Record> history(String project) throws IOException {
+        List<Record> records = new ArrayList<>();
+        for (Entry entry : index.getOrDefault(project, List.of())) {
+            records.add(read(entry.offset()));
+        }
+        return records;
+    }
+
+    /** @return The keys of the projects with a record, sorted. */
+    public List<String> projects() {
+        return List.copyOf(index.keySet());
+    }
+
+    /** @return The run of the last record appended, if any. */
+    public Optional<String> lastRun() {
+        return Optional.ofNullable(lastRun);
+    }
+
+    /**
+     * Names a new run after the current instant, at the clock's full
+     * precision, and later than the last run recorded, so that two runs never
+     * share a name even within the same clock tick.
+     *
+     * @return The new run, as an ISO-8601 instant.
+     */
+    public String newRun() {
+        Instant now = Instant.now();
+        if (lastRun != null) {
+            try {
+                Instant last = Instant.parse(lastRun);
+                if (!now.isAfter(last)) {
+                    now = last.plusNanos(1);
+                }
+            } catch (DateTimeParseException e) {
+                // Not a name given by this method, which cannot collide with one
+            }
+        }
+        return now.toString();
+    }
+
+    /**
+     * Compares each project tested in a run with its previous record.
+     *
+     * @param run The run.
+     * @return The changes, by project key.
+     */
+    public List<Change> diff(String run) throws IOException {
+        List<Change> changes = new ArrayList<>();
+        for (Map.Entry<String, List<Entry>> project : index.entrySet()) {
+            List<Entry> entries = project.getValue();
+            for (int i = entries.size() - 1; i >= 0; i--) {
+                if (run.equals(entries.get(i).run())) {
+                    Record current = read(entries.get(i).offset());
+                    Record previous = i > 0 ? read(entries.get(i - 1).offset()) : null;
+                    changes.add(new Change(project.getKey(), kind(previous, current), previous, current));
+                    break;
+                }
+            }
+        }
+        return changes;
+    }
+
+    private static Kind kind(Record previous, Record current) {
+        if (previous == null) {
+            return Kind.NEW;
+        }
+        if (previous.outcome() != Outcome.PASSED && current.outcome() == Outcome.PASSED) {
+            return Kind.FIXED;
+        }
+        if (previous.outcome() == Outcome.PASSED && current.outcome() != Outcome.PASSED) {
+            return Kind.REGRESSED;
+        }
+        if (previous.outcome() != current.outcome() || !Objects.equals(previous.checks(), current.checks())) {
+            return Kind.CHANGED;
+        }
+        return Kind.UNCHANGED;
+    }
+
+    /**
+     * Prints the changes of a run, and how many projects it did not test.
+     *
+     * @param run The run.
+     */
+    public void printDiff(String run) throws IOException {
+        List<Change> changes = diff(run);
+        long changed = changes.stream().filter(change -> change.kind() != Kind.UNCHANGED).count();
+        System.out.printf("Run %s: %d jars tested, %d changed, %d projects not tested%n", run, changes.size(),
+                changed, index.size() - changes.size());
+        for (Change change : changes) {
+            Record current = change.current();
+            Record previous = change.previous();
+            StringBuilder line = new StringBuilder(String.format("%-9s %-50s %s", change.kind(), change.project(),
+                    current.outcome()));
+            if (previous != null) {
+                line.append(String.format(" (was %s, %s)", previous.outcome(),
+                        previous.jarSha256() != null && previous.jarSha256().equals(current.jarSha256())
+                                ? "same jar"
+                                : previous.version() + " -> " + current.version()));
+                line.append(String.format(" %d ms (%+d)", current.durationMillis(),
+                        current.durationMillis() - previous.durationMillis()));
+            } else {
+                line.append(String.format(" %d ms", current.durationMillis()));
+            }
+            System.out.println(line);
+            if (change.kind() != Kind.UNCHANGED && current.checks() != null) {
+                for (CheckResult check : current.checks()) {
+                    if (!check.passed()) {
+                        System.out.println("          " + check.name() + ": " + check.detail());
+                    }
+                }
+            }
+        }
+    }
+
+    // Reads the line starting at an offset
+    private Record read(long offset) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        ByteBuffer buffer = ByteBuffer.allocate(8 * 1024);
+        long position = offset;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            position += read;
+            buffer.flip();
+            int newline = -1;
+            for (int i = 0; i < buffer.limit(); i++) {
+                if (buffer.get(i) == '\n') {
+                    newline = i;
+                    break;
+                }
+            }
+            line.write(buffer.array(), 0, newline >= 0 ? newline : buffer.limit());
+            if (newline >= 0) {
+                break;
+            }
+        }
+        return JSON.readValue(line.toByteArray(), Record.class);
+    }
+
+    /**
+     * Forces the appended records to disk and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * @param file A file.
+     * @return The SHA-256 of its content, in hexadecimal.
+     */
+    static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream input = new DigestInputStream(Files.newInputStream(file), digest)) {
+            input.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static void main(String[] args) throws Exception {
+        String command = args.length > 0 ? args[0] : "diff";
+        Path path = Path.of(STORE_FILE);
+        if (!Files.exists(path)) {
+            System.out.println("No acceptance history in " + path + ", run AcceptanceRunner first.");
+            return;
+        }
+        try (ResultStore store = open(path)) {
+            switch (command) {
+                case "diff" -> {
+                    Optional<String> run = args.length > 1 ? Optional.of(args[1]) : store.lastRun();
+                    if (run.isEmpty()) {
+                        System.out.println("No run recorded.");
+                    } else {
+                        store.printDiff(run.get());
+                    }
+                }
+                case "latest" -> {
+                    for (String project : store.projects()) {
+                        Record record = store.latest(project).orElseThrow();
+                        System.out.printf("%-7s %6d ms  %-50s %s  %s%n", record.outcome(), record.durationMillis(),
+                                project, record.version(), record.run());
+                    }
+                }
+                case "history" -> {
+                    if (args.length < 2) {
+                        System.err.println("Usage: ResultStore history PROJECT");
+                        return;
+                    }
+                    for (String project : store.projects()) {
+                        if (!project.contains(args[1])) {
+                            continue;
+                        }
+                        System.out.println(project + ":");
+                        for (Record record : store.history(project)) {
+                            System.out.printf("  %s  %-7s %6d ms  %s  jar %.10s  reference %s%n", record.run(),
+                                    record.outcome(), record.durationMillis(), record.version(),
+                                    record.jarSha256(), record.referenceVersion());
+                        }
+                    }
+                }
+                default -> System.err.println("Usage: ResultStore [diff [RUN] | latest | history PROJECT]");
+            }
+        }
+    }
+
+    /** How a project's result changed since its previous record. */
+    public enum Kind {
+        NEW, FIXED, REGRESSED, CHANGED, UNCHANGED
+    }
+
+    /**
+     * The change of a project's result in a run.
+     *
+     * @param project  The project key.
+     * @param kind     How it changed.
+     * @param previous Its previous record, or {@code null} when it is new.
+     * @param current  Its record in the run.
+     */
+    public record Change(String project, Kind kind, Record previous, Record current) {
+    }
+
+    /**
+     * One acceptance run of one student jar.
+     *
+     * @param run              When the run of all jars started, as an ISO-8601 instant
+     *                         unique in the store.
+     * @param project          The project key, the jar name without its version.
+     * @param groupId          The group ID from the metadata, if known.
+     * @param artifactId       The artifact ID from the metadata, if known.
+     * @param version          The version from the metadata, or from the jar name.
+     * @param jar              The jar file name.
+     * @param jarSha256        The SHA-256 of the jar.
+     * @param referenceVersion The version of the reference jar it ran against.
+     * @param outcome          The outcome.
+     * @param durationMillis   The wall-clock time of the run.
+     * @param checks           The individual checks.
+     */
+    public record Record(String run, String project, String groupId, String artifactId, String version,
+            String jar, String jarSha256, String referenceVersion, Outcome outcome, long durationMillis,
+            List<CheckResult> checks) {
+
+        /**
+         * Makes the record of a result.
+         *
+         * @param metadata The metadata of the project, or {@code null}.
+         */
+        static Record of(String run, String project, PomInfo metadata, String jarSha256, String referenceVersion,
+                AcceptanceResult result) {
+            // Without metadata, the version is the one in the jar name, as in the POM name
+            String version = metadata != null
+                    ? metadata.version()
+                    : MetadataExtractor.extractVersionFromFileName(result.jar().replaceFirst("\\.jar$", ".pom"));
+            return new Record(run, project, metadata != null ? metadata.groupId() : null,
+                    metadata != null ? metadata.artifactId() : null, version, result.jar(), jarSha256,
+                    referenceVersion, result.outcome(), result.durationMillis(), result.checks());
+        }
+
+        /**
+         * @return Whether this run can stand for a run of the same jar against the
+         *         same reference: it did not time out, which may not happen again.
+         */
+        boolean isReusableFor(String jarSha256, String referenceVersion) {
+            return outcome != Outcome.TIMEOUT && Objects.equals(this.jarSha256, jarSha256)
+                    && Objects.equals(this.referenceVersion, referenceVersion);
+        }
+
+        /**
+         * @param jar The current file name of the jar.
+         * @return The result of this run, without the program output, which is not stored.
+         */
+        AcceptanceResult toResult(String jar) {
+            return new AcceptanceResult(jar, outcome, durationMillis, checks, null);
+        }
+    }
+
+    // Position of a record in the file
+    private record Entry(long offset, String run) {
+    }
+}
@@ -0,0 +1,376 @@
+package com.cthiebaud.passwordvalidator;
+
+import com.cthiebaud.passwordvalidator.MetadataExtractor.PomInfo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Fetches the sources of every project into {@code downloaded_sources}.
+ * <p>
+ * In-process replacement for {@code download_sources.py}, working on a pool
+ * of {@code parallelism} threads. A project with an SCM URL is cloned, or, if
+ * already cloned, compared with {@code git ls-remote} first and only fetched
+ * when the remote HEAD moved; either way it is reset to the remote HEAD, as
+ * the script's {@code reset --hard} and {@code pull} did. A project without
+ * one gets its {@code project-zip} artifact from the Maven repository,
+ * unzipped as it streams in; the checksum of the last extracted zip is kept
+ * next to the project directory so that an unchanged zip is not fetched again.
+ * <p>
+ * Usage: {@code SourceFetcher [--parallelism=N] [--repository=URL]
+ * [--timeout=SECONDS] [project]}. Projects are read from
+ * {@code packages_metadata.catalog} when it is not older than
+ * {@code packages_metadata.yaml}, from the YAML otherwise. SCM URLs may be local paths or
+ * {@code file:} URLs, and the repository a {@code file:} URL, which makes
+ * local bare repositories and zip files usable for tests.
+ */
+public class SourceFetcher {
+
+    static final String SOURCES_DIR = "downloaded_sources";
+
+    private static final int DEFAULT_PARALLELISM = 8;
+    private static final long DEFAULT_TIMEOUT_SECONDS = 300;
+
+    // Timestamped SNAPSHOT versions live in the directory of their base version
+    private static final Pattern TIMESTAMPED = Pattern.compile("(.*)-\\d{8}\\.\\d{6}-\\d+");
+
+    private final Path sourcesDir;
+    private final MavenRepository repository;
+    private final long timeoutSeconds;
+
+    /**
+     * @param sourcesDir     The directory to fetch the projects into.
+     * @param repository     The repository of the {@code project-zip} artifacts.
+     * @param timeoutSeconds The time a git command may take.
+     */
+    public SourceFetcher(Path sourcesDir, MavenRepository repository, long timeoutSeconds) {
+        this.sourcesDir = sourcesDir;
+        this.repository = repository;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String project = null;
+        String repositoryUrl = ArtifactDownloader.REPOSITORY_URL;
+        int parallelism = DEFAULT_PARALLELISM;
+        long timeoutSeconds = DEFAULT_TIMEOUT_SECONDS;
+        for (String arg : args) {
+            if (arg.startsWith("--parallelism=")) {
+                parallelism = Integer.parseInt(arg.substring("--parallelism=".length()));
+            } else if (arg.startsWith("--repository=")) {
+                repositoryUrl = arg.substring("--repository=".length());
+            } else if (arg.startsWith("--timeout=")) {
+                timeoutSeconds = Long.parseLong(arg.substring("--timeout=".length()));
+            } else {
+                project = arg;
+            }
+        }
+
+        Map<String, PomInfo> projects = MetadataCatalog.readProjects(Path.of(MetadataCatalog.CATALOG_FILE),
+                Path.of(MetadataExtractor.METADATA_FILE));
+        if (project != null) {
+            String filter = project;
+            projects.keySet().removeIf(key -> !key.contains(filter));
+        }
+        if (projects.isEmpty()) {
+            System.out.println("No projects to fetch.");
+            return;
+        }
+
+        // The token is only needed for zip artifacts of a remote repository
+        URI repositoryUri = URI.create(repositoryUrl);
+        String token = null;
+        boolean needsToken = !"file".equals(repositoryUri.getScheme())
+                && projects.values().stream().anyMatch(info -> !hasScmUrl(info));
+        if (needsToken) {
+            token = GitHubPackagesLister.loadToken("src/main/resources/github-token.txt");
+        }
+
+        Path sourcesDir = Path.of(SOURCES_DIR);
+        Files.createDirectories(sourcesDir);
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, parallelism),
+                runnable -> Thread.ofPlatform().daemon().name("source-fetcher").unstarted(runnable));
+        // Not the pool: its threads wait for the files this one reads
+        ExecutorService io = Executors.newCachedThreadPool(runnable -> Thread.ofPlatform().daemon()
+                .name("artifact-io").unstarted(runnable));
+        try {
+            MavenRepository repository = MavenRepository.of(repositoryUri, ArtifactDownloader.REPOSITORY_USER, token,
+                    HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build(), io);
+            SourceFetcher fetcher = new SourceFetcher(sourcesDir, repository, timeoutSeconds);
+
+            long start = System.nanoTime();
+            List<Result> results = fetcher.fetchAll(projects, pool);
+            Map<Status, Integer> counts = new LinkedHashMap<>();
+            for (Result result : results) {
+                counts.merge(result.status(), 1, Integer::sum);
+            }
+            System.out.printf("Sources fetched to %s in %.1f s: %s%n", sourcesDir,
+                    (System.nanoTime() - start) / 1e9, counts);
+        } finally {
+            pool.shutdownNow();
+            io.shutdownNow();
+        }
+    }
+
+    /**
+     * Fetches projects concurrently, printing a line as each one is done.
+     *
+     * @param projects The projects keyed by project key, which names their
+     *                 directory.
+     * @param pool     Runs one project per thread.
+     * @return The results, in the order of {@code projects}.
+     */
+    public List<Result> fetchAll(Map<String, PomInfo> projects, ExecutorService pool) {
+        List<Callable<Result>> tasks = new ArrayList<>(projects.size());
+        projects.forEach((key, info) -> tasks.add(() -> {
+            Result result = fetch(key, info);
+            System.out.println(result);
+            return result;
+        }));
+
+        List<Result> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<Result> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fetching sources", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unexpected failure while fetching sources", e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * Fetches one project. Failures are reported in the result rather than
+     * thrown.
+     *
+     * @param key  The project key, which names its directory.
+     * @param info Its POM information.
+     * @return What was done.
+     */
+    public Result fetch(String key, PomInfo info) {
+        try {
+            return hasScmUrl(info) ? fetchGit(key, info.scmUrl()) : fetchZip(key, info);
+        } catch (IOException | RuntimeException e) {
+            return new Result(key, Status.FAILED, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Result(key, Status.FAILED, "interrupted");
+        }
+    }
+
+    private Result fetchGit(String key, String scmUrl) throws IOException, InterruptedException {
+        Path directory = sourcesDir.resolve(key);
+        if (!Files.exists(directory)) {
+            git(null, "clone", "--quiet", scmUrl, directory.toString());
+            return new Result(key, Status.CLONED, abbreviate(git(directory, "rev-parse", "HEAD")));
+        }
+        if (!Files.isDirectory(directory.resolve(".git"))) {
+            return new Result(key, Status.FAILED, directory + " exists but is not a git clone");
+        }
+
+        // One round trip tells whether there is anything to fetch
+        String remote = firstWord(git(directory, "ls-remote", "origin", "HEAD"));
+        String local = git(directory, "rev-parse", "HEAD").trim();
+        if (remote.isEmpty()) {
+            return new Result(key, Status.FAILED, "origin has no HEAD");
+        }
+        if (remote.equals(local)) {
+            git(directory, "reset", "--quiet", "--hard", "HEAD");
+            return new Result(key, Status.UP_TO_DATE, abbreviate(local));
+        }
+        git(directory, "fetch", "--quiet", "origin", "HEAD");
+        git(directory, "reset", "--quiet", "--hard", "FETCH_HEAD");
+        return new Result(key, Status.UPDATED, abbreviate(local) + ".." + abbreviate(remote));
+    }
+
+    private Result fetchZip(String key, PomInfo info) throws IOException {
+        if (info.groupId() == null || info.artifactId() == null || info.version() == null) {
+            return new Result(key, Status.FAILED, "no SCM URL and incomplete coordinates");
+        }
+        Matcher timestamped = TIMESTAMPED.matcher(info.version());
+        String directoryVersion = timestamped.matches() ? timestamped.group(1) + "-SNAPSHOT" : info.version();
+        String path = info.groupId().replace('.', '/') + "/" + info.artifactId() + "/" + directoryVersion + "/"
+                + info.artifactId() + "-" + info.version() + "-project-zip.zip";
+
+        // Skip the download when the zip last extracted has the published checksum
+        Path checksumFile = sourcesDir.resolve("." + key + ".zip.sha1");
+        Path directory = sourcesDir.resolve(key);
+        String checksum = repository.open(path + ".sha1").join().map(SourceFetcher::readChecksum).orElse(null);
+        if (checksum != null && Files.isDirectory(directory) && Files.isRegularFile(checksumFile)
+                && checksum.equals(Files.readString(checksumFile).trim())) {
+            return new Result(key, Status.UP_TO_DATE, "zip " + abbreviate(checksum));
+        }
+
+        Optional<InputStream> body = repository.open(path).join();
+        if (body.isEmpty()) {
+            return new Result(key, Status.FAILED, "not found in repository: " + path);
+        }
+        Files.deleteIfExists(checksumFile);
+        FileUtils.deleteRecursively(directory);
+        int files;
+        try (ZipInputStream zip = new ZipInputStream(body.get())) {
+            files = unzip(zip, directory);
+        }
+        if (checksum != null) {
+            Files.writeString(checksumFile, checksum + "\n");
+        }
+        return new Result(key, Status.EXTRACTED, files + " files");
+    }
+
+    /**
+     * Writes the entries of a zip stream under a directory as they are read.
+     * When they all sit in a single top-level directory, its content is then
+     * moved up, as {@code download_sources.py} did.
+     *
+     * @param zip       The zip stream.
+     * @param directory The directory to create.
+     * @return The number of files written.
+     */
+    static int unzip(ZipInputStream zip, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path root = directory.toAbsolutePath().normalize();
+        Set<String> topLevel = new HashSet<>();
+        boolean topLevelFile = false;
+        int files = 0;
+
+        for (ZipEntry entry; (entry = zip.getNextEntry()) != null;) {
+            Path target = root.resolve(entry.getName()).normalize();
+            if (!target.startsWith(root) || target.equals(root)) {
+                throw new IOException("Zip entry outside of the target directory: " + entry.getName());
+            }
+            Path first = root.relativize(target).getName(0);
+            topLevel.add(first.toString());
+            if (entry.isDirectory()) {
+                Files.createDirectories(target);
+            } else {
+                topLevelFile |= first.equals(root.relativize(target));
+                Files.createDirectories(target.getParent());
+                Files.copy(zip, target, StandardCopyOption.REPLACE_EXISTING);
+                files++;
+            }
+        }
+
+        if (topLevel.size() == 1 && !topLevelFile) {
+            // Rename first, in case the directory holds an entry of its own name
+            Path single = root.resolve(topLevel.iterator().next());
+            Path moved = Files.move(single, root.resolve("." + single.getFileName() + ".unzipped"));
+            try (Stream<Path> children = Files.list(moved)) {
+                for (Path child : children.toList()) {
+                    Files.move(child, root.resolve(child.getFileName()));
+                }
+            }
+            Files.delete(moved);
+        }
+        return files;
+    }
+
+    // Run a git command, failing with its output on a non-zero exit
+    private String git(Path directory, String... arguments) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        if (directory != null) {
+            command.add("-C");
+            command.add(directory.toString());
+        }
+        command.addAll(List.of(arguments));
+
+        ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true);
+        // Never wait for credentials on a terminal nobody watches
+        builder.environment().put("GIT_TERMINAL_PROMPT", "0");
+        Process process = builder.start();
+        process.getOutputStream().close();
+
+        // Drain the output meanwhile, so that a chatty command cannot block on a full pipe
+        FutureTask<byte[]> output = new FutureTask<>(() -> {
+            try (InputStream input = process.getInputStream()) {
+                return input.readAllBytes();
+            }
+        });
+        Thread.ofVirtual().start(output);
+        if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            throw new IOException("git " + arguments[0] + " timed out after " + timeoutSeconds + " s");
+        }
+        String text;
+        try {
+            text = new String(output.get(), StandardCharsets.UTF_8);
+        } catch (ExecutionException e) {
+            throw new IOException("Error reading git output", e.getCause());
+        }
+        if (process.exitValue() != 0) {
+            throw new IOException("git " + arguments[0] + " failed: " + text.strip());
+        }
+        return text;
+    }
+
+    static boolean hasScmUrl(PomInfo info) {
+        return info.scmUrl() != null && !info.scmUrl().isBlank() && !info.scmUrl().equals("N/A");
+    }
+
+    private static String readChecksum(InputStream input) {
+        try (input) {
+            String[] tokens = new String(input.readAllBytes(), StandardCharsets.UTF_8).trim().split("\\s+");
+            return tokens[0].isEmpty() ? null : tokens[0].toLowerCase();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String firstWord(String text) {
+        String trimmed = text.trim();
+        int space = trimmed.indexOf('\t') >= 0 ? trimmed.indexOf('\t') : trimmed.indexOf(' ');
+        return space < 0 ? trimmed : trimmed.substring(0, space);
+    }
+
+    private static String abbreviate(String sha) {
+        String trimmed = sha.trim();
+        return trimmed.length() > 10 ? trimmed.substring(0, 10) : trimmed;
+    }
+
+    /** What was done to a project. */
+    public enum Status {
+        CLONED, UPDATED, UP_TO_DATE, EXTRACTED, FAILED
+    }
+
+    /**
+     * @param project The project key.
+     * @param status  What was done.
+     * @param detail  Commits, file count or error.
+     */
+    public record Result(String project, Status status, String detail) {
+        @Override
+        public String toString() {
+            return String.format("%-50s %-10s %s", project, status, detail);
+        }
+    }
+}
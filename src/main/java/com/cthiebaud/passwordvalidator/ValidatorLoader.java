@@ -0,0 +1,176 @@
+package com.cthiebaud.passwordvalidator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.Optional;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Locates and instantiates the {@code PasswordValidator} implementation of a
+ * student jar.
+ * <p>
+ * The implementation is the class registered in
+ * {@code META-INF/services/com.cthiebaud.passwordvalidator.PasswordValidator}
+ * when there is one, otherwise the first concrete class of the jar that
+ * implements the interface. The interface itself comes from the reference
+ * {@code password-validator} jar, which must be on the same class loader.
+ */
+public class ValidatorLoader {
+
+    /** Fully qualified name of the interface students implement. */
+    public static final String PASSWORD_VALIDATOR = "com.cthiebaud.passwordvalidator.PasswordValidator";
+
+    private ValidatorLoader() {
+    }
+
+    /**
+     * Finds the implementation class of a student jar.
+     *
+     * @param loader     A class loader seeing both the reference and the student jar.
+     * @param studentJar The student jar.
+     * @return The implementation class, or empty when the jar has none.
+     */
+    public static Optional<Class<?>> findImplementation(ClassLoader loader, Path studentJar)
+            throws IOException, ClassNotFoundException {
+        Class<?> api = Class.forName(PASSWORD_VALIDATOR, false, loader);
+
+        try (JarFile jar = new JarFile(studentJar.toFile())) {
+            // Prefer the service registration, as ServiceLoader would
+            JarEntry service = jar.getJarEntry("META-INF/services/" + PASSWORD_VALIDATOR);
+            if (service != null) {
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(jar.getInputStream(service), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String className = line.replaceAll("#.*", "").trim();
+                        if (!className.isEmpty()) {
+                            return Optional.of(Class.forName(className, false, loader));
+                        }
+                    }
+                }
+            }
+
+            // Otherwise scan the jar's classes
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (!name.endsWith(".class") || name.contains("-") || name.startsWith("META-INF/")) {
+                    continue; // module-info, package-info, multi-release variants
+                }
+                String className = name.substring(0, name.length() - ".class".length()).replace('/', '.');
+                try {
+                    Class<?> candidate = Class.forName(className, false, loader);
+                    if (api.isAssignableFrom(candidate) && !candidate.isInterface()
+                            && !Modifier.isAbstract(candidate.getModifiers())) {
+                        return Optional.of(candidate);
+                    }
+                } catch (ClassNotFoundException | LinkageError e) {
+                    // Classes depending on something missing cannot be the implementation
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Instantiates the implementation of a student jar.
+     *
+     * @param loader     A class loader seeing both the reference and the student jar.
+     * @param studentJar The student jar.
+     * @return A validator calling the student implementation.
+     * @throws IllegalStateException When the jar has no usable implementation.
+     */
+    public static Validator load(ClassLoader loader, Path studentJar) throws Exception {
+        Class<?> implementation = findImplementation(loader, studentJar)
+                .orElseThrow(() -> new IllegalStateException("No " + PASSWORD_VALIDATOR
+                        + " implementation in " + studentJar.getFileName()));
+        return of(implementation);
+    }
+
+    /**
+     * Wraps an implementation class, resolving its methods once as method
+     * handles.
+     *
+     * @param implementation A class implementing {@link #PASSWORD_VALIDATOR}.
+     * @return A validator calling a new instance of the class.
+     */
+    public static Validator of(Class<?> implementation) throws ReflectiveOperationException {
+        Class<?> api = Class.forName(PASSWORD_VALIDATOR, false, implementation.getClassLoader());
+        Constructor<?> constructor = implementation.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        Object instance = constructor.newInstance();
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        Method validate = api.getMethod("validate", String.class);
+        MethodHandle handle = lookup.unreflect(validate).bindTo(instance);
+
+        // validate may return a boolean, or a result object exposing isValid()/valid()
+        Class<?> resultType = validate.getReturnType();
+        if (resultType != boolean.class) {
+            Method accessor = validityAccessor(resultType);
+            handle = MethodHandles.filterReturnValue(handle,
+                    lookup.unreflect(accessor).asType(MethodType.methodType(boolean.class, resultType)));
+        }
+        MethodHandle target = handle.asType(MethodType.methodType(boolean.class, String.class));
+        String name = implementation.getName();
+
+        return new Validator() {
+            @Override
+            public boolean isValid(String password) {
+                try {
+                    return (boolean) target.invokeExact(password);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            @Override
+            public String implementation() {
+                return name;
+            }
+        };
+    }
+
+    private static Method validityAccessor(Class<?> resultType) throws NoSuchMethodException {
+        for (String name : new String[] { "isValid", "valid", "getValid" }) {
+            try {
+                Method method = resultType.getMethod(name);
+                if (method.getReturnType() == boolean.class) {
+                    method.setAccessible(true); // Result types need not be public
+                    return method;
+                }
+            } catch (NoSuchMethodException e) {
+                // Try the next naming convention
+            }
+        }
+        throw new NoSuchMethodException("No boolean isValid()/valid() on " + resultType.getName());
+    }
+
+    /**
+     * A loaded student implementation.
+     */
+    public interface Validator {
+
+        /**
+         * @param password The candidate password.
+         * @return Whether the implementation accepts it.
+         */
+        boolean isValid(String password);
+
+        /** @return The implementation class name. */
+        String implementation();
+    }
+}
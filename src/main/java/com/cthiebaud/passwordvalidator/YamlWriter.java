@@ -2,19 +2,57 @@ package com.cthiebaud.passwordvalidator;
 
 import com.cthiebaud.passwordvalidator.MetadataExtractor.Developer;
 import com.cthiebaud.passwordvalidator.MetadataExtractor.PomInfo;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator;
 
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Method;
-import java.util.LinkedHashMap;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.RecordComponent;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.Set;
+import java.util.TreeSet;
 
-public class YamlWriter {
+/**
+ * Streams POM information to a YAML file.
+ * <p>
+ * Projects are written through a {@link YAMLGenerator} as they are given to
+ * {@link #write(String, PomInfo)}, in that order, so memory does not grow with
+ * the number of projects; the developer total goes at the end, once known. The
+ * record accessors are resolved once, as method handles. Callers give the
+ * projects in {@link #projectOrder(Collection)}.
+ */
+public class YamlWriter implements AutoCloseable {
+
+        // Configure YAMLFactory to suppress unnecessary quotes
+        private static final YAMLFactory YAML_FACTORY = new YAMLFactory()
+                        .enable(YAMLGenerator.Feature.MINIMIZE_QUOTES) // Suppress quotes when not needed
+                        .disable(YAMLGenerator.Feature.SPLIT_LINES); // Disable line wrapping
+
+        // Project fields, in output order, with their default value
+        private static final List<ProjectField> PROJECT_FIELDS = List.of(
+                        projectField("groupId", "Unknown"),
+                        projectField("artifactId", "Unknown"),
+                        projectField("version", "Unknown"),
+                        projectField("scmUrl", "N/A"));
+
+        private final YAMLGenerator generator;
+        private final String outputPath;
+        private final Metrics.YamlWriteEvent event;
+        private int projects;
+        private int totalDevelopers;
+
+        private YamlWriter(YAMLGenerator generator, String outputPath) {
+                this.generator = generator;
+                this.outputPath = outputPath;
+                this.event = new Metrics.YamlWriteEvent(outputPath);
+        }
 
         /**
          * Writes the given POM information to a YAML file.
@@ -24,29 +62,11 @@ public class YamlWriter {
          * @param outputPath    The path of the output YAML file.
          */
         public static void writePomInfoToYamlFile(Map<String, PomInfo> pomInfoByFile, String outputPath) {
-                try {
-                        // Prepare the data structure for YAML with an ordered map
-                        Map<String, Object> yamlData = new TreeMap<>(Map.of(
-                                        "totalDevelopers",
-                                        pomInfoByFile.values().stream()
-                                                        .mapToInt(info -> info.developers().size())
-                                                        .sum(),
-                                        "projects", prepareProjectsMap(pomInfoByFile)));
-
-                        // Configure YAMLFactory to suppress unnecessary quotes
-                        YAMLFactory yamlFactory = new YAMLFactory()
-                                        .enable(YAMLGenerator.Feature.MINIMIZE_QUOTES) // Suppress quotes when not
-                                                                                       // needed
-                                        .disable(YAMLGenerator.Feature.SPLIT_LINES); // Disable line wrapping
-
-                        ObjectMapper yamlMapper = new ObjectMapper(yamlFactory);
-                        yamlMapper.setDefaultPropertyInclusion(
-                                        com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL);
-
-                        // Write YAML data to the specified output file
-                        yamlMapper.writeValue(new File(outputPath), yamlData);
-
-                        System.out.println("Metadata written to YAML file: " + outputPath);
+                try (YamlWriter writer = begin(outputPath)) {
+                        for (String key : projectOrder(pomInfoByFile.keySet())) {
+                                writer.write(key, pomInfoByFile.get(key));
+                        }
+                        writer.end();
                 } catch (IOException e) {
                         System.out.println("Error writing to YAML file.");
                         e.printStackTrace();
@@ -54,79 +74,136 @@ public class YamlWriter {
         }
 
         /**
-         * Prepares the "projects" section of the YAML structure.
+         * Projects have always been listed in the iteration order of a HashMap
+         * filled in key order; keep it so that the file does not churn.
          *
-         * @param pomInfoByFile A map containing artifact IDs and their corresponding
-         *                      POM information.
-         * @return A map representing the "projects" section of the YAML.
+         * @param keys The project keys.
+         * @return The keys in output order.
+         */
+        static List<String> projectOrder(Collection<String> keys) {
+                // Filled one by one, as the map was, so that it grows the same way
+                Set<String> order = new HashSet<>();
+                for (String key : new TreeSet<>(keys)) {
+                        order.add(key);
+                }
+                return List.copyOf(order);
+        }
+
+        /**
+         * Opens a YAML file and starts its "projects" section.
+         *
+         * @param outputPath The path of the output YAML file.
+         * @return The writer, to be given the projects then ended.
          */
-        private static Map<String, Object> prepareProjectsMap(Map<String, PomInfo> pomInfoByFile) {
-                return pomInfoByFile.entrySet().stream()
-                                .collect(java.util.stream.Collectors.toMap(
-                                                Map.Entry::getKey,
-                                                entry -> {
-                                                        PomInfo info = entry.getValue();
-                                                        Map<String, Object> projectMap = new LinkedHashMap<>();
-                                                        put2map(info, "groupId", "Unknown", projectMap);
-                                                        put2map(info, "artifactId", "Unknown", projectMap);
-                                                        put2map(info, "version", "Unknown", projectMap);
-                                                        put2map(info, "scmUrl", "N/A", projectMap);
-                                                        projectMap.put("developers",
-                                                                        prepareDevelopersList(info.developers()));
-                                                        projectMap.put("alldevmails", info.alldevmails());
-
-                                                        return projectMap;
-                                                }));
+        public static YamlWriter begin(String outputPath) throws IOException {
+                YAMLGenerator generator = (YAMLGenerator) YAML_FACTORY.createGenerator(new File(outputPath),
+                                JsonEncoding.UTF8);
+                generator.writeStartObject();
+                generator.writeFieldName("projects");
+                generator.writeStartObject();
+                return new YamlWriter(generator, outputPath);
         }
 
         /**
-         * Dynamically adds a key-value pair to the map using reflection.
+         * Writes one project of the "projects" section.
          *
-         * @param info         The object containing the field.
-         * @param fieldName    The name of the field (or getter method) to invoke.
-         * @param defaultValue The default value to use if the field value is null.
-         * @param map          The map to which the key-value pair is added.
+         * @param key  The project key.
+         * @param info The POM information of the project.
          */
-        private static void put2map(Object info, String fieldName, Object defaultValue, Map<String, Object> map) {
+        public void write(String key, PomInfo info) throws IOException {
+                generator.writeFieldName(key);
+                generator.writeStartObject();
+                for (ProjectField field : PROJECT_FIELDS) {
+                        generator.writeStringField(field.name(), field.valueOf(info));
+                }
+                writeDevelopers(info.developers());
+                generator.writeStringField("alldevmails", info.alldevmails());
+                generator.writeEndObject();
+
+                projects++;
+                totalDevelopers += info.developers().size();
+        }
+
+        /**
+         * Ends the "projects" section, writes the number of developers counted by
+         * {@link #write(String, PomInfo)} and closes the file.
+         */
+        public void end() throws IOException {
+                generator.writeEndObject();
+                generator.writeNumberField("totalDevelopers", totalDevelopers);
+                generator.writeEndObject();
+                generator.close();
+                event.finish(projects);
+
+                System.out.println("Metadata written to YAML file: " + outputPath);
+        }
+
+        /**
+         * Closes the file, incomplete unless {@link #end()} was called.
+         */
+        @Override
+        public void close() throws IOException {
+                generator.close();
+        }
+
+        /**
+         * Writes the developers list of a project.
+         *
+         * @param developers A list of developers associated with a POM file.
+         */
+        private void writeDevelopers(List<Developer> developers) throws IOException {
+                generator.writeFieldName("developers");
+                generator.writeStartArray();
+                for (Developer dev : developers) {
+                        generator.writeStartObject();
+                        generator.writeStringField("id", dev.id() != null ? dev.id() : "N/A");
+                        generator.writeStringField("name", dev.name() != null ? dev.name() : "N/A");
+                        generator.writeStringField("email", dev.email() != null ? dev.email() : "N/A");
+                        generator.writeEndObject();
+                }
+                generator.writeEndArray();
+        }
+
+        /**
+         * Resolves the accessor of a {@link PomInfo} component once.
+         *
+         * @param name         The name of the record component.
+         * @param defaultValue The value to write when the component is null.
+         * @return The field.
+         */
+        private static ProjectField projectField(String name, String defaultValue) {
                 try {
-                        // Use the field name directly as the method name
-                        Method method = info.getClass().getMethod(fieldName);
-                        Object value = method.invoke(info); // Invoke the method on the object
-
-                        // If defaultValue is null, enforce strict validation
-                        if (defaultValue == null) {
-                                if (value == null || (value instanceof String && ((String) value).isBlank())) {
-                                        throw new IllegalArgumentException("Field '" + fieldName
-                                                        + "' must not be null, blank, or missing.");
+                        for (RecordComponent component : PomInfo.class.getRecordComponents()) {
+                                if (component.getName().equals(name)) {
+                                        MethodHandle accessor = MethodHandles.lookup()
+                                                        .unreflect(component.getAccessor())
+                                                        .asType(MethodType.methodType(String.class, PomInfo.class));
+                                        return new ProjectField(name, accessor, defaultValue);
                                 }
                         }
-
-                        // Put the value or default value into the map
-                        map.put(fieldName, value != null ? value : defaultValue);
-                } catch (Exception e) {
-                        // Handle any exception and rethrow as RuntimeException with details
-                        throw new RuntimeException(
-                                        "Error accessing field '" + fieldName + "' in record: "
-                                                        + info.getClass().getName(),
-                                        e);
+                } catch (IllegalAccessException e) {
+                        throw new ExceptionInInitializerError(e);
                 }
+                throw new IllegalArgumentException("No component '" + name + "' in record: " + PomInfo.class.getName());
         }
 
         /**
-         * Prepares the developers list for the YAML structure.
+         * A project field written from a record component.
          *
-         * @param developers A list of developers associated with a POM file.
-         * @return A list of maps representing developer details.
+         * @param name         The field name, also the component name.
+         * @param accessor     The component accessor, as {@code (PomInfo)String}.
+         * @param defaultValue The value to write when the component is null.
          */
-        private static List<Map<String, String>> prepareDevelopersList(List<Developer> developers) {
-                return developers.stream()
-                                .map(dev -> {
-                                        Map<String, String> devMap = new LinkedHashMap<>();
-                                        devMap.put("id", dev.id() != null ? dev.id() : "N/A");
-                                        devMap.put("name", dev.name() != null ? dev.name() : "N/A");
-                                        devMap.put("email", dev.email() != null ? dev.email() : "N/A");
-                                        return devMap;
-                                })
-                                .toList();
+        private record ProjectField(String name, MethodHandle accessor, String defaultValue) {
+
+                String valueOf(PomInfo info) {
+                        try {
+                                String value = (String) accessor.invokeExact(info);
+                                return value != null ? value : defaultValue;
+                        } catch (Throwable e) {
+                                throw new RuntimeException("Error accessing field '" + name + "' in record: "
+                                                + PomInfo.class.getName(), e);
+                        }
+                }
         }
 }
@@ -0,0 +1,224 @@
+package com.cthiebaud.passwordvalidator;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Read-only view of a ZIP file (such as a jar) through its central directory.
+ * <p>
+ * The file is memory-mapped; opening it reads the end of central directory
+ * record and the central directory only, and {@link #read(Entry)} touches the
+ * data of that entry only. Nothing is extracted to disk. ZIP64 archives are
+ * supported; encrypted entries and methods other than stored and deflated are
+ * not.
+ */
+class ZipDirectory {
+
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int CENTRAL_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_SIGNATURE = 0x04034b50;
+
+    private static final int END_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+
+    private final MappedByteBuffer buffer;
+    private final List<Entry> entries;
+
+    private ZipDirectory(MappedByteBuffer buffer, List<Entry> entries) {
+        this.buffer = buffer;
+        this.entries = entries;
+    }
+
+    /**
+     * Maps a ZIP file and reads its central directory.
+     *
+     * @param file The ZIP file.
+     * @return The directory.
+     * @throws ZipException When the file is not a readable ZIP file.
+     */
+    static ZipDirectory open(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new ZipException("Too large to map: " + file.getFileName());
+            }
+            // The mapping stays valid once the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return new ZipDirectory(buffer, readCentralDirectory(buffer, file));
+    }
+
+    /** @return The entries, in central directory order. */
+    List<Entry> entries() {
+        return entries;
+    }
+
+    /**
+     * Reads the uncompressed content of an entry.
+     *
+     * @param entry An entry of this directory.
+     * @return Its content.
+     */
+    byte[] read(Entry entry) throws IOException {
+        int local = checkedOffset(entry.localHeaderOffset());
+        if (local + LOCAL_HEADER_SIZE > buffer.limit() || buffer.getInt(local) != LOCAL_SIGNATURE) {
+            throw new ZipException("Bad local header for " + entry.name());
+        }
+        // The local name and extra field lengths may differ from the central ones
+        int dataOffset = local + LOCAL_HEADER_SIZE + Short.toUnsignedInt(buffer.getShort(local + 26))
+                + Short.toUnsignedInt(buffer.getShort(local + 28));
+        int compressedSize = checkedOffset(entry.compressedSize());
+        int size = checkedOffset(entry.size());
+        if (dataOffset + (long) compressedSize > buffer.limit()) {
+            throw new ZipException("Truncated entry " + entry.name());
+        }
+
+        byte[] content = new byte[size];
+        switch (entry.method()) {
+            case STORED -> buffer.get(dataOffset, content, 0, size);
+            case DEFLATED -> {
+                Inflater inflater = new Inflater(true);
+                try {
+                    inflater.setInput(buffer.slice(dataOffset, compressedSize));
+                    int read = 0;
+                    while (read < size && !inflater.finished()) {
+                        int n = inflater.inflate(content, read, size - read);
+                        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            throw new ZipException("Truncated deflated data for " + entry.name());
+                        }
+                        read += n;
+                    }
+                } catch (DataFormatException e) {
+                    throw new ZipException("Bad deflated data for " + entry.name() + ": " + e.getMessage());
+                } finally {
+                    inflater.end();
+                }
+            }
+            default -> throw new ZipException("Unsupported compression method " + entry.method() + " for "
+                    + entry.name());
+        }
+        return content;
+    }
+
+    private static List<Entry> readCentralDirectory(MappedByteBuffer buffer, Path file) throws ZipException {
+        int end = findEnd(buffer);
+        if (end < 0) {
+            throw new ZipException("No end of central directory record: " + file.getFileName());
+        }
+        long count = Short.toUnsignedLong(buffer.getShort(end + 10));
+        long offset = Integer.toUnsignedLong(buffer.getInt(end + 16));
+
+        // Saturated fields mean the real values are in the ZIP64 record
+        int locator = end - ZIP64_LOCATOR_SIZE;
+        if ((count == 0xFFFF || offset == 0xFFFFFFFFL) && locator >= 0
+                && buffer.getInt(locator) == ZIP64_LOCATOR_SIGNATURE) {
+            int zip64End = checkedOffset(buffer.getLong(locator + 8));
+            if (buffer.getInt(zip64End) != ZIP64_END_SIGNATURE) {
+                throw new ZipException("Bad ZIP64 end of central directory record: " + file.getFileName());
+            }
+            count = buffer.getLong(zip64End + 32);
+            offset = buffer.getLong(zip64End + 48);
+        }
+
+        List<Entry> entries = new ArrayList<>((int) Math.min(count, 1 << 16));
+        int position = checkedOffset(offset);
+        for (long i = 0; i < count; i++) {
+            if (position + CENTRAL_HEADER_SIZE > buffer.limit() || buffer.getInt(position) != CENTRAL_SIGNATURE) {
+                throw new ZipException("Bad central directory entry " + i + ": " + file.getFileName());
+            }
+            int method = Short.toUnsignedInt(buffer.getShort(position + 10));
+            long compressedSize = Integer.toUnsignedLong(buffer.getInt(position + 20));
+            long size = Integer.toUnsignedLong(buffer.getInt(position + 24));
+            int nameLength = Short.toUnsignedInt(buffer.getShort(position + 28));
+            int extraLength = Short.toUnsignedInt(buffer.getShort(position + 30));
+            int commentLength = Short.toUnsignedInt(buffer.getShort(position + 32));
+            long localHeaderOffset = Integer.toUnsignedLong(buffer.getInt(position + 42));
+
+            // Jar tools write UTF-8 names whether or not they set the flag
+            byte[] name = new byte[nameLength];
+            buffer.get(position + CENTRAL_HEADER_SIZE, name);
+
+            // Saturated sizes and offset are in the ZIP64 extra field, in this order
+            int extra = position + CENTRAL_HEADER_SIZE + nameLength;
+            for (int field = extra; field + 4 <= extra + extraLength;) {
+                int id = Short.toUnsignedInt(buffer.getShort(field));
+                int length = Short.toUnsignedInt(buffer.getShort(field + 2));
+                if (id == 0x0001) {
+                    int value = field + 4;
+                    if (size == 0xFFFFFFFFL) {
+                        size = buffer.getLong(value);
+                        value += 8;
+                    }
+                    if (compressedSize == 0xFFFFFFFFL) {
+                        compressedSize = buffer.getLong(value);
+                        value += 8;
+                    }
+                    if (localHeaderOffset == 0xFFFFFFFFL) {
+                        localHeaderOffset = buffer.getLong(value);
+                    }
+                    break;
+                }
+                field += 4 + length;
+            }
+
+            entries.add(new Entry(new String(name, StandardCharsets.UTF_8), method, compressedSize, size,
+                    localHeaderOffset));
+            position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+        return entries;
+    }
+
+    // Scan back from the end, past a possible archive comment
+    private static int findEnd(MappedByteBuffer buffer) {
+        int last = buffer.limit() - END_SIZE;
+        int first = Math.max(0, last - MAX_COMMENT_SIZE);
+        for (int position = last; position >= first; position--) {
+            if (buffer.getInt(position) == END_SIGNATURE) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private static int checkedOffset(long value) throws ZipException {
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new ZipException("Offset out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * A central directory entry.
+     *
+     * @param name              The entry name, with '/' separators.
+     * @param method            The compression method.
+     * @param compressedSize    The size of the stored data.
+     * @param size              The uncompressed size.
+     * @param localHeaderOffset The offset of the entry's local header.
+     */
+    record Entry(String name, int method, long compressedSize, long size, long localHeaderOffset) {
+
+        boolean isDirectory() {
+            return name.endsWith("/");
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.cthiebaud.passwordvalidator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cthiebaud.passwordvalidator.ArtifactDownloader.ArtifactResult;
+import com.cthiebaud.passwordvalidator.ArtifactDownloader.PackageResult;
+import com.cthiebaud.passwordvalidator.ArtifactDownloader.Status;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Runs {@link ArtifactDownloader} against a {@code file:} repository.
+ */
+class ArtifactDownloaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private Path repository;
+    private Path outputDir;
+
+    @BeforeEach
+    void createRepository() throws Exception {
+        repository = tempDir.resolve("repository");
+        outputDir = Files.createDirectories(tempDir.resolve("downloaded_packages"));
+
+        publish("com/acme/alpha/1.0/alpha-1.0", "alpha jar", "alpha pom");
+
+        Path snapshots = Files.createDirectories(repository.resolve("com/acme/beta/1.1-SNAPSHOT"));
+        Files.writeString(snapshots.resolve("maven-metadata.xml"), """
+                <metadata>
+                  <groupId>com.acme</groupId>
+                  <artifactId>beta</artifactId>
+                  <version>1.1-SNAPSHOT</version>
+                  <versioning>
+                    <snapshot>
+                      <timestamp>20241201.120000</timestamp>
+                      <buildNumber>3</buildNumber>
+                    </snapshot>
+                  </versioning>
+                </metadata>
+                """);
+        publish("com/acme/beta/1.1-SNAPSHOT/beta-1.1-20241201.120000-3", "beta jar", "beta pom");
+
+        publish("com/acme/gamma/2.0/gamma-2.0", "gamma jar", "gamma pom");
+        Files.writeString(repository.resolve("com/acme/gamma/2.0/gamma-2.0.jar.sha1"), sha1("something else"));
+    }
+
+    @AfterEach
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void downloadsReleasesAndResolvedSnapshots() throws Exception {
+        List<PackageResult> results = downloader().downloadAll(List.of("com.acme:alpha:1.0",
+                "com.acme:beta:1.1-SNAPSHOT"));
+
+        PackageResult alpha = results.get(0);
+        assertNull(alpha.error());
+        assertEquals("com.acme.alpha", alpha.projectKey());
+        assertEquals(List.of(Status.DOWNLOADED, Status.DOWNLOADED), statuses(alpha));
+        assertEquals("alpha jar", Files.readString(outputDir.resolve("com.acme.alpha-1.0.jar")));
+        assertEquals("alpha pom", Files.readString(outputDir.resolve("com.acme.alpha-1.0.pom")));
+
+        PackageResult beta = results.get(1);
+        assertNull(beta.error());
+        assertEquals("1.1-20241201.120000-3", beta.resolvedVersion());
+        assertTrue(beta.log().contains("Resolved 1.1-SNAPSHOT to 1.1-20241201.120000-3"), beta.log().toString());
+        assertEquals("beta jar", Files.readString(outputDir.resolve("com.acme.beta-1.1-20241201.120000-3.jar")));
+        assertEquals("beta pom", Files.readString(outputDir.resolve("com.acme.beta-1.1-20241201.120000-3.pom")));
+    }
+
+    @Test
+    void checksumMismatchFailsThePackageAndLeavesNothing() throws Exception {
+        PackageResult gamma = downloader().download("com.acme:gamma:2.0").join();
+
+        assertTrue(gamma.error().contains("Checksum mismatch for com.acme.gamma-2.0.jar"), gamma.error());
+        assertFalse(Files.exists(outputDir.resolve("com.acme.gamma-2.0.jar")));
+        try (Stream<Path> files = Files.list(outputDir)) {
+            assertTrue(files.noneMatch(file -> file.getFileName().toString().endsWith(".part")));
+        }
+    }
+
+    @Test
+    void secondRunFindsEverythingUpToDate() throws Exception {
+        List<String> packages = List.of("com.acme:alpha:1.0", "com.acme:beta:1.1-SNAPSHOT");
+        downloader().downloadAll(packages);
+        Path jar = outputDir.resolve("com.acme.alpha-1.0.jar");
+
+        List<PackageResult> again = downloader().downloadAll(packages);
+
+        for (PackageResult result : again) {
+            assertEquals(List.of(Status.UP_TO_DATE, Status.UP_TO_DATE), statuses(result));
+        }
+        assertTrue(again.get(0).log().contains("Up to date com.acme.alpha-1.0.jar"), again.get(0).log().toString());
+
+        // A file changed on disk is downloaded again
+        Files.writeString(jar, "tampered");
+        PackageResult alpha = downloader().download("com.acme:alpha:1.0").join();
+        assertEquals(List.of(Status.DOWNLOADED, Status.UP_TO_DATE), statuses(alpha));
+        assertEquals("alpha jar", Files.readString(jar));
+    }
+
+    @Test
+    void pruneStaleKeepsTheFilesOfFailedPackages() throws Exception {
+        Files.writeString(outputDir.resolve("com.acme.alpha-0.9.jar"), "older build");
+        Files.writeString(outputDir.resolve("com.acme.gamma-1.0.jar"), "last good build");
+        ArtifactDownloader downloader = downloader();
+
+        downloader.pruneStale(downloader.downloadAll(List.of("com.acme:alpha:1.0", "com.acme:gamma:2.0")));
+
+        assertFalse(Files.exists(outputDir.resolve("com.acme.alpha-0.9.jar")));
+        assertTrue(Files.exists(outputDir.resolve("com.acme.alpha-1.0.jar")));
+        assertTrue(Files.exists(outputDir.resolve("com.acme.gamma-1.0.jar")));
+    }
+
+    private ArtifactDownloader downloader() {
+        MavenRepository mavenRepository = MavenRepository.of(repository.toUri(), null, null, null, executor);
+        return new ArtifactDownloader(mavenRepository, outputDir, 2, executor);
+    }
+
+    // Writes a jar and a POM with their .sha1 files
+    private void publish(String base, String jar, String pom) throws Exception {
+        Path jarFile = repository.resolve(base + ".jar");
+        Files.createDirectories(jarFile.getParent());
+        Files.writeString(jarFile, jar);
+        Files.writeString(repository.resolve(base + ".jar.sha1"), sha1(jar));
+        Files.writeString(repository.resolve(base + ".pom"), pom);
+        Files.writeString(repository.resolve(base + ".pom.sha1"), sha1(pom) + "  " + base + ".pom");
+    }
+
+    private static List<Status> statuses(PackageResult result) {
+        return result.artifacts().stream().map(ArtifactResult::status).toList();
+    }
+
+    private static String sha1(String content) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1")
+                .digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
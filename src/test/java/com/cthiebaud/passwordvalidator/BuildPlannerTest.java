@@ -0,0 +1,161 @@
+package com.cthiebaud.passwordvalidator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cthiebaud.passwordvalidator.BuildPlanner.Module;
+import com.cthiebaud.passwordvalidator.BuildPlanner.ModuleResult;
+import com.cthiebaud.passwordvalidator.BuildPlanner.Shard;
+import com.cthiebaud.passwordvalidator.BuildPlanner.Status;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks the file-level functions of {@link BuildPlanner}: sharding, reading
+ * the reactor summary and rewriting the aggregator POM.
+ */
+class BuildPlannerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void partitionGivesEachModuleToTheLightestShard() {
+        // The cost of a module is its size here
+        List<Module> modules = List.of(module("f", 1), module("e", 3), module("a", 9), module("d", 4),
+                module("b", 7), module("c", 5));
+
+        List<Shard> shards = BuildPlanner.partition(modules, 2, Module::sourceBytes);
+
+        // a(9) -> 0, b(7) -> 1, c(5) -> 1, d(4) -> 0, e(3) -> 1, f(1) -> 0
+        assertEquals(2, shards.size());
+        assertEquals(List.of("a", "d", "f"), paths(shards.get(0)));
+        assertEquals(14, shards.get(0).estimatedMillis());
+        assertEquals(List.of("b", "c", "e"), paths(shards.get(1)));
+        assertEquals(15, shards.get(1).estimatedMillis());
+    }
+
+    @Test
+    void partitionMakesNoEmptyShardsAndBreaksTiesByPath() {
+        List<Module> modules = List.of(module("c", 5), module("a", 5), module("b", 5));
+
+        List<Shard> shards = BuildPlanner.partition(modules, 8, Module::sourceBytes);
+
+        assertEquals(3, shards.size());
+        assertEquals(List.of("a"), paths(shards.get(0)));
+        assertEquals(List.of("b"), paths(shards.get(1)));
+        assertEquals(List.of("c"), paths(shards.get(2)));
+    }
+
+    @Test
+    void reactorSummaryLinesAreMatchedToTheShardModules() throws Exception {
+        Path log = tempDir.resolve("build.log");
+        Files.write(log, List.of(
+                "[INFO] alpha ............................................ FAILURE [  9.999 s]",
+                "[INFO] ------------------------------------------------------------------------",
+                "[INFO] Reactor Summary for password-validator-acceptance-shard-0 0.0.0-SNAPSHOT:",
+                "[INFO] ",
+                "[INFO] alpha ............................................ SUCCESS [  2.345 s]",
+                "[INFO] alpha extended 1.0-SNAPSHOT ...................... FAILURE [01:02 min]",
+                "[INFO] beta 2.1 ......................................... SUCCESS [01:02 h]",
+                "[INFO] gamma ............................................ SKIPPED",
+                "[INFO] not in this shard ................................ SUCCESS [  1.000 s]",
+                "[INFO] password-validator-acceptance-shard-0 0.0.0-SNAPSHOT SUCCESS [  0.001 s]",
+                "[INFO] ------------------------------------------------------------------------",
+                "[INFO] BUILD FAILURE"));
+        Module alpha = new Module("students/alpha", "alpha", 0);
+        Module extended = new Module("students/alpha-extended", "alpha extended", 0);
+        Module beta = new Module("students/beta", "beta", 0);
+        Module gamma = new Module("students/gamma", "gamma", 0);
+        Shard shard = new Shard(3, List.of(alpha, extended, beta, gamma), 0);
+
+        Map<String, ModuleResult> results = BuildPlanner.readReactorSummary(log, shard);
+
+        assertEquals(4, results.size());
+        // Lines before the summary do not count
+        assertEquals(new ModuleResult(alpha, 3, Status.SUCCESS, 2_345), results.get("students/alpha"));
+        // The longest label wins, with the version after it
+        assertEquals(new ModuleResult(extended, 3, Status.FAILURE, 62_000), results.get("students/alpha-extended"));
+        assertEquals(new ModuleResult(beta, 3, Status.SUCCESS, 62 * 60_000), results.get("students/beta"));
+        assertEquals(new ModuleResult(gamma, 3, Status.SKIPPED, -1), results.get("students/gamma"));
+    }
+
+    @Test
+    void missingLogHasNoResults() throws Exception {
+        Shard shard = new Shard(0, List.of(new Module("students/alpha", "alpha", 0)), 0);
+
+        assertTrue(BuildPlanner.readReactorSummary(tempDir.resolve("build.log"), shard).isEmpty());
+    }
+
+    @Test
+    void aggregatorModulesAreReplacedAndQuarantinedOnesCommentedOut() throws Exception {
+        Path pom = tempDir.resolve("pom.xml");
+        Files.writeString(pom, """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <project xmlns="http://maven.apache.org/POM/4.0.0">
+                    <modelVersion>4.0.0</modelVersion>
+                    <artifactId>aggregator</artifactId>
+                    <!-- kept as it is -->
+                    <modules>
+                        <module>students/old</module>
+                        <!--module>students/older</module-->
+                    </modules>
+                    <properties>
+                        <modules>not the modules</modules>
+                    </properties>
+                </project>
+                """);
+
+        BuildPlanner.writeAggregatorPom(pom, List.of(module("students/alpha", 0), module("students/beta", 0)),
+                List.of(module("students/gamma", 0)));
+
+        String content = Files.readString(pom);
+        assertTrue(content.contains("""
+                    <modules>
+                        <module>students/alpha</module>
+                        <module>students/beta</module>
+                        <!--module>students/gamma</module-->
+                    </modules>
+                """), content);
+        assertFalse(content.contains("students/old"), content);
+        assertTrue(content.contains("<!-- kept as it is -->"), content);
+        assertTrue(content.contains("<modules>not the modules</modules>"), content);
+        assertTrue(content.contains("<artifactId>aggregator</artifactId>"), content);
+    }
+
+    @Test
+    void aggregatorWithoutModulesGetsThemAtTheEnd() throws Exception {
+        Path pom = tempDir.resolve("pom.xml");
+        Files.writeString(pom, """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <project xmlns="http://maven.apache.org/POM/4.0.0">
+                    <artifactId>aggregator</artifactId>
+                </project>
+                """);
+
+        BuildPlanner.writeAggregatorPom(pom, List.of(module("students/alpha", 0)), List.of());
+
+        String content = Files.readString(pom);
+        assertTrue(content.contains("""
+                    <artifactId>aggregator</artifactId>
+                    <modules>
+                        <module>students/alpha</module>
+                    </modules>
+                </project>"""), content);
+    }
+
+    private static Module module(String path, long sourceBytes) {
+        return new Module(path, path, sourceBytes);
+    }
+
+    private static List<String> paths(Shard shard) {
+        return shard.modules().stream().map(Module::path).toList();
+    }
+}
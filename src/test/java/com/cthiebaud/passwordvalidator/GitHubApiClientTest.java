@@ -0,0 +1,172 @@
+package com.cthiebaud.passwordvalidator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cthiebaud.passwordvalidator.GitHubApiClient.ApiResponse;
+import com.cthiebaud.passwordvalidator.PackageDiscovery.DiscoveredPackage;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Runs {@link GitHubApiClient} with its {@link HttpResponseCache} and
+ * {@link RateLimitScheduler} against a stub server.
+ */
+class GitHubApiClientTest {
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private final ExecutorService clientThreads = Executors.newCachedThreadPool(runnable -> Thread.ofPlatform()
+            .name("github-io").unstarted(runnable));
+    // Threads the bodies were decoded on
+    private final List<String> decoderThreads = new ArrayList<>();
+    // If-None-Match header and arrival time of each request, in order
+    private final List<String> validators = new ArrayList<>();
+    private final List<Long> arrivals = new ArrayList<>();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        serverThreads.shutdownNow();
+        clientThreads.shutdownNow();
+    }
+
+    @Test
+    void notModifiedResponseIsServedFromTheCache() throws Exception {
+        server.createContext("/resource", exchange -> {
+            String validator = record(exchange);
+            if ("\"v1\"".equals(validator)) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+            } else {
+                exchange.getResponseHeaders().add("ETag", "\"v1\"");
+                exchange.getResponseHeaders().add("Link", "<" + uri("/resource?page=2") + ">; rel=\"next\"");
+                respond(exchange, 200, "cached body");
+            }
+        });
+        HttpResponseCache cache = new HttpResponseCache(tempDir.resolve("cache"));
+        GitHubApiClient client = client(cache);
+
+        ApiResponse<String> first = client.get(uri("/resource"), this::text).join();
+        ApiResponse<String> second = client.get(uri("/resource"), this::text).join();
+
+        assertEquals(200, first.statusCode());
+        assertEquals("cached body", first.value());
+        // The 304 is reported as a 200 with the cached body and Link header
+        assertEquals(200, second.statusCode());
+        assertEquals("cached body", second.value());
+        assertEquals(first.link(), second.link());
+        assertNull(validators.get(0));
+        assertEquals("\"v1\"", validators.get(1));
+        assertEquals("HTTP cache: 1 hits (304 Not Modified), 1 misses", cache.stats());
+        // Decoding and the cache copy stay off the common pool
+        assertEquals(List.of("github-io", "github-io"), decoderThreads);
+    }
+
+    @Test
+    void exhaustedQuotaDelaysTheNextRequestUntilTheReset() throws Exception {
+        long resetSeconds = System.currentTimeMillis() / 1000 + 2;
+        server.createContext("/resource", exchange -> {
+            record(exchange);
+            exchange.getResponseHeaders().add("X-RateLimit-Remaining", "0");
+            exchange.getResponseHeaders().add("X-RateLimit-Reset", String.valueOf(resetSeconds));
+            respond(exchange, 200, "body");
+        });
+        GitHubApiClient client = client(null);
+
+        client.get(uri("/resource"), this::text).join();
+        ApiResponse<String> second = client.get(uri("/resource"), this::text).join();
+
+        assertEquals(200, second.statusCode());
+        assertTrue(arrivals.get(1) >= resetSeconds * 1000,
+                "second request sent " + (resetSeconds * 1000 - arrivals.get(1)) + " ms before the reset");
+    }
+
+    @Test
+    void rateLimitedVersionRequestIsRetriedAfterTheReset() throws Exception {
+        long resetSeconds = System.currentTimeMillis() / 1000 + 1;
+        AtomicInteger versionRequests = new AtomicInteger();
+        server.createContext("/orgs/acme/packages", exchange -> {
+            record(exchange);
+            if (!exchange.getRequestURI().getPath().endsWith("/versions")) {
+                respond(exchange, 200, "[{\"name\":\"com.acme.alpha\"}]");
+            } else if (versionRequests.incrementAndGet() == 1) {
+                exchange.getResponseHeaders().add("X-RateLimit-Remaining", "0");
+                exchange.getResponseHeaders().add("X-RateLimit-Reset", String.valueOf(resetSeconds));
+                respond(exchange, 403, "{\"message\":\"API rate limit exceeded\"}");
+            } else {
+                respond(exchange, 200, "[{\"name\":\"1.0\"}]");
+            }
+        });
+        PackageDiscovery discovery = new PackageDiscovery(client(null), uri(""), "acme");
+
+        List<DiscoveredPackage> packages = discovery.discover(_ -> {
+        }).join();
+
+        assertEquals(List.of(new DiscoveredPackage("com.acme.alpha", "1.0")), packages);
+        assertEquals(2, versionRequests.get());
+        assertTrue(arrivals.get(2) >= resetSeconds * 1000,
+                "retry sent " + (resetSeconds * 1000 - arrivals.get(2)) + " ms before the reset");
+    }
+
+    private GitHubApiClient client(HttpResponseCache cache) {
+        return new GitHubApiClient(HttpClient.newHttpClient(), "token", 1, cache, new RateLimitScheduler(),
+                clientThreads);
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+
+    private synchronized String record(HttpExchange exchange) {
+        arrivals.add(System.currentTimeMillis());
+        String validator = exchange.getRequestHeaders().getFirst("If-None-Match");
+        validators.add(validator);
+        return validator;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private synchronized String text(InputStream body) throws IOException {
+        decoderThreads.add(Thread.currentThread().getName());
+        return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,162 @@
+package com.cthiebaud.passwordvalidator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.cthiebaud.passwordvalidator.MetadataCatalog.Index;
+import com.cthiebaud.passwordvalidator.MetadataExtractor.Developer;
+import com.cthiebaud.passwordvalidator.MetadataExtractor.PomInfo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks the lookups of {@link MetadataCatalog} and reads projects back from
+ * the catalog and from the YAML.
+ */
+class MetadataCatalogTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final Map<String, PomInfo> projects = new TreeMap<>(Map.of(
+            "com.acme.beta", new PomInfo("beta", "com.acme", "1.1", List.of(), null),
+            "com.acme.alpha", new PomInfo("alpha", "com.acme", "1.0", List.of(
+                    new Developer("ada", "Ada", "ada@example.com", null),
+                    new Developer("bob", null, "bob@example.com", null)), "https://github.com/acme/alpha")));
+
+    @Test
+    void catalogIsPreferredToTheYaml() throws Exception {
+        Path catalog = tempDir.resolve(MetadataCatalog.CATALOG_FILE);
+        MetadataCatalog.write(projects, catalog);
+
+        Map<String, PomInfo> read = MetadataCatalog.readProjects(catalog, tempDir.resolve("missing.yaml"));
+
+        assertEquals(List.of("com.acme.alpha", "com.acme.beta"), List.copyOf(read.keySet()));
+        assertEquals(projects, read);
+    }
+
+    @Test
+    void yamlIsReadWithItsDevelopersWhenThereIsNoCatalog() throws Exception {
+        Path yaml = tempDir.resolve(MetadataExtractor.METADATA_FILE);
+        YamlWriter.writePomInfoToYamlFile(projects, yaml.toString());
+
+        Map<String, PomInfo> read = MetadataCatalog.readProjects(tempDir.resolve(MetadataCatalog.CATALOG_FILE), yaml);
+
+        assertEquals(List.of("com.acme.alpha", "com.acme.beta"), List.copyOf(read.keySet()));
+        assertEquals(projects, read);
+    }
+
+    @Test
+    void catalogOlderThanTheYamlIsIgnored() throws Exception {
+        Path catalog = tempDir.resolve(MetadataCatalog.CATALOG_FILE);
+        MetadataCatalog.write(Map.of("com.acme.stale", new PomInfo("stale", "com.acme", "0.1", List.of(), null)),
+                catalog);
+        Path yaml = tempDir.resolve(MetadataExtractor.METADATA_FILE);
+        YamlWriter.writePomInfoToYamlFile(projects, yaml.toString());
+        // As when writing the catalog failed after the YAML was written
+        Files.setLastModifiedTime(catalog, FileTime.from(Instant.now().minusSeconds(60)));
+
+        assertEquals(projects, MetadataCatalog.readProjects(catalog, yaml));
+    }
+
+    @Test
+    void everyIndexFindsItsProjects() throws Exception {
+        Map<String, PomInfo> indexed = new TreeMap<>(projects);
+        indexed.put("org.other.gamma", new PomInfo("gamma", "org.other", "2.0", List.of(
+                new Developer("ada", "Ada", "ADA@Example.com", null)), "scm:git:https://GitLab.com/other/gamma.git"));
+        indexed.put("org.other.delta", new PomInfo("delta", "org.other", "2.1", List.of(), "git@github.com:o/d.git"));
+        MetadataCatalog catalog = write(indexed);
+
+        assertEquals(List.of("com.acme.alpha"), keys(catalog, catalog.lookup(Index.ARTIFACT_ID, "alpha")));
+        assertEquals(List.of("com.acme.alpha", "com.acme.beta"),
+                keys(catalog, catalog.lookup(Index.GROUP_ID, "com.acme")));
+        assertEquals(List.of("com.acme.alpha", "org.other.gamma"),
+                keys(catalog, catalog.lookup(Index.DEVELOPER_ID, "ada")));
+        // Emails and hosts ignore case, on both sides
+        assertEquals(List.of("com.acme.alpha", "org.other.gamma"),
+                keys(catalog, catalog.lookup(Index.DEVELOPER_EMAIL, "Ada@EXAMPLE.com")));
+        assertEquals(List.of("com.acme.alpha", "org.other.delta"),
+                keys(catalog, catalog.lookup(Index.SCM_HOST, "GitHub.com")));
+        assertEquals(List.of("org.other.gamma"), keys(catalog, catalog.lookup(Index.SCM_HOST, "gitlab.com")));
+        // The other indexes do not
+        assertEquals(List.of(), keys(catalog, catalog.lookup(Index.ARTIFACT_ID, "Alpha")));
+        assertEquals(List.of(), keys(catalog, catalog.lookup(Index.GROUP_ID, "org.missing")));
+        assertEquals(List.of("com.acme.beta"), keys(catalog, catalog.withoutScmUrl()));
+
+        for (int i = 0; i < catalog.size(); i++) {
+            assertEquals(indexed.get(catalog.key(i)), catalog.project(i));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> catalog.project(catalog.size()));
+    }
+
+    @Test
+    void probingFindsEveryKeyOfALargeIndex() throws Exception {
+        // Enough keys for the open-addressing tables to have collisions
+        Map<String, PomInfo> many = new HashMap<>();
+        for (int i = 0; i < 500; i++) {
+            many.put("g.a" + i, new PomInfo("a" + i, "g" + i % 7, "1." + i, List.of(), null));
+        }
+        MetadataCatalog catalog = write(many);
+
+        assertEquals(500, catalog.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(List.of("g.a" + i), keys(catalog, catalog.lookup(Index.ARTIFACT_ID, "a" + i)));
+        }
+        assertEquals(72, catalog.lookup(Index.GROUP_ID, "g0").length);
+        assertEquals(List.of(), keys(catalog, catalog.lookup(Index.ARTIFACT_ID, "a500")));
+        assertEquals(500, catalog.withoutScmUrl().length);
+    }
+
+    @Test
+    void emptyCatalogHasNoProjects() throws Exception {
+        MetadataCatalog catalog = write(Map.of());
+
+        assertEquals(0, catalog.size());
+        for (Index index : Index.values()) {
+            assertEquals(0, catalog.lookup(index, "anything").length);
+        }
+        assertEquals(0, catalog.withoutScmUrl().length);
+    }
+
+    @Test
+    void otherFilesAreNotOpened() throws Exception {
+        Path file = tempDir.resolve("not.catalog");
+        Files.writeString(file, "projects: {}\n".repeat(10));
+
+        assertThrows(IOException.class, () -> MetadataCatalog.open(file));
+    }
+
+    @Test
+    void scmHostOfEveryUrlForm() {
+        assertEquals("github.com", MetadataCatalog.scmHost("scm:git:https://GitHub.com/acme/alpha.git"));
+        assertEquals("github.com", MetadataCatalog.scmHost("https://github.com/acme/alpha"));
+        assertEquals("gitlab.example.org", MetadataCatalog.scmHost("git@GitLab.example.org:acme/alpha.git"));
+        assertEquals("github.com", MetadataCatalog.scmHost("scm:git:git@github.com:acme/alpha.git"));
+        assertNull(MetadataCatalog.scmHost("N/A"));
+        assertNull(MetadataCatalog.scmHost(" "));
+        assertNull(MetadataCatalog.scmHost(null));
+    }
+
+    private MetadataCatalog write(Map<String, PomInfo> content) throws IOException {
+        Path catalog = tempDir.resolve(MetadataCatalog.CATALOG_FILE);
+        MetadataCatalog.write(content, catalog);
+        return MetadataCatalog.open(catalog);
+    }
+
+    private static List<String> keys(MetadataCatalog catalog, int[] numbers) {
+        return Arrays.stream(numbers).mapToObj(catalog::key).toList();
+    }
+}
@@ -0,0 +1,199 @@
+package com.cthiebaud.passwordvalidator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cthiebaud.passwordvalidator.PackageDiscovery.DiscoveryException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Runs {@link PackageDiscovery} and {@link GitHubPackagesLister} against a stub
+ * of the GitHub packages API.
+ */
+class PackageDiscoveryTest {
+
+    private static final int MAX_IN_FLIGHT = 3;
+
+    // Three pages of packages, deliberately out of order
+    private static final List<List<String>> PAGES = List.of(
+            List.of("com.acme.zeta", "com.acme.alpha", "org.other.excluded"),
+            List.of("com.acme.mu", "com.acme.broken"),
+            List.of("com.acme.beta", "com.acme.kappa"));
+
+    private static final Pattern PAGE = Pattern.compile("(?:^|&)page=(\\d+)");
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private final ExecutorService clientThreads = Executors.newCachedThreadPool();
+    private final Set<Integer> pagesServed = ConcurrentHashMap.newKeySet();
+    private final Map<String, String> snapshots = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile int failingPage = -1;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.createContext("/orgs/acme/packages", this::handle);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        serverThreads.shutdownNow();
+        clientThreads.shutdownNow();
+    }
+
+    @Test
+    void followsEveryPageAndWritesASortedCompleteList() throws Exception {
+        Path output = tempDir.resolve("packages.txt");
+
+        Set<String> lines = GitHubPackagesLister.listPackages(discovery(), Set.of("org.other:excluded"), output);
+
+        List<String> expected = List.of(
+                "com.acme:alpha:1.0.alpha",
+                "com.acme:beta:1.0.beta",
+                "com.acme:broken:error-fetching-version",
+                "com.acme:kappa:1.0.kappa",
+                "com.acme:mu:1.0.mu",
+                "com.acme:zeta:1.0.zeta");
+        assertEquals(Set.of(1, 2, 3), pagesServed);
+        assertEquals(expected, List.copyOf(lines));
+        assertEquals(expected, Files.readAllLines(output));
+
+        // The file was already sorted while the slowest version was still pending
+        String partial = snapshots.get("com.acme.zeta");
+        assertEquals(expected.stream().filter(line -> !line.startsWith("com.acme:zeta:")).toList(),
+                partial.lines().toList());
+
+        assertTrue(maxInFlight.get() <= MAX_IN_FLIGHT, "max in flight " + maxInFlight.get());
+        assertTrue(maxInFlight.get() > 1, "requests were not concurrent");
+    }
+
+    @Test
+    void failingPageFailsDiscoveryAndRestoresThePreviousList() throws Exception {
+        failingPage = 2;
+        Path output = tempDir.resolve("packages.txt");
+        Files.writeString(output, "com.acme:previous:1.0\n");
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> GitHubPackagesLister.listPackages(discovery(), Set.of(), output));
+
+        assertInstanceOf(DiscoveryException.class, e.getCause());
+        assertTrue(e.getCause().getMessage().contains("500"), e.getCause().getMessage());
+        assertEquals(Set.of(1, 2), pagesServed);
+        assertEquals("com.acme:previous:1.0\n", Files.readString(output));
+    }
+
+    private PackageDiscovery discovery() {
+        GitHubApiClient client = new GitHubApiClient(HttpClient.newHttpClient(), "token", MAX_IN_FLIGHT, null,
+                new RateLimitScheduler(), clientThreads);
+        URI apiBase = URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+        return new PackageDiscovery(client, apiBase, "acme");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        int status = 200;
+        String body;
+        String link = null;
+        try {
+            String path = exchange.getRequestURI().getPath();
+            if (path.endsWith("/versions")) {
+                String name = path.split("/")[5];
+                if (name.equals("com.acme.zeta") && failingPage < 0) {
+                    // Answer last, once every other package is in the list
+                    snapshots.put(name, awaitLines(PAGES.stream().mapToInt(List::size).sum() - 2));
+                } else {
+                    Thread.sleep(10L * (name.length() % 5));
+                }
+                if (name.equals("com.acme.broken")) {
+                    status = 500;
+                    body = "{\"message\":\"Server Error\"}";
+                } else {
+                    body = "[{\"name\":\"1.0." + name.substring(name.lastIndexOf('.') + 1) + "\"}]";
+                }
+            } else {
+                Matcher pageParameter = PAGE.matcher(exchange.getRequestURI().getQuery());
+                int page = pageParameter.find() ? Integer.parseInt(pageParameter.group(1)) : 1;
+                pagesServed.add(page);
+                if (page == failingPage) {
+                    status = 500;
+                    body = "{\"message\":\"Server Error\"}";
+                } else {
+                    body = PAGES.get(page - 1).stream()
+                            .map(name -> "{\"name\":\"" + name + "\",\"package_type\":\"maven\"}")
+                            .reduce((a, b) -> a + "," + b).map(list -> "[" + list + "]").orElseThrow();
+                    if (page < PAGES.size()) {
+                        link = String.format("<http://127.0.0.1:%d/orgs/acme/packages?page=%d>; rel=\"next\"",
+                                server.getAddress().getPort(), page + 1);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = 503;
+            body = "";
+        } finally {
+            // Counted out before answering, so the client cannot start its next request first
+            inFlight.decrementAndGet();
+        }
+        if (link != null) {
+            exchange.getResponseHeaders().add("Link", link);
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // The content of packages.txt once it has `count` lines, polling for up to 5 s
+    private String awaitLines(int count) throws InterruptedException, IOException {
+        Path output = tempDir.resolve("packages.txt");
+        for (int i = 0; i < 500; i++) {
+            if (Files.exists(output)) {
+                String content = Files.readString(output);
+                if (content.lines().count() >= count) {
+                    return content;
+                }
+            }
+            Thread.sleep(10);
+        }
+        return Files.exists(output) ? Files.readString(output) : "";
+    }
+}
@@ -0,0 +1,226 @@
+package com.cthiebaud.passwordvalidator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.cthiebaud.passwordvalidator.MetadataExtractor.Developer;
+import com.cthiebaud.passwordvalidator.MetadataExtractor.PomInfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Checks {@link PomParser} against the DOM lookups it replaced.
+ */
+class PomParserTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void sameOutputAsDomLookupsOnSamplePoms() throws Exception {
+        List<Path> poms = samplePoms();
+        assertFalse(poms.isEmpty(), "no sample POMs");
+        for (Path pom : poms) {
+            assertEquals(DomLookups.read(pom.toFile()), PomParser.parse(pom.toFile()), pom.toString());
+        }
+    }
+
+    @Test
+    void parentCoordinatesDoNotShadowTheProjectOnes() throws Exception {
+        File pom = write("""
+                <project xmlns="http://maven.apache.org/POM/4.0.0">
+                  <parent>
+                    <groupId>org.springframework.boot</groupId>
+                    <artifactId>spring-boot-starter-parent</artifactId>
+                    <version>3.4.0</version>
+                  </parent>
+                  <groupId>com.example</groupId>
+                  <artifactId>validator</artifactId>
+                  <version>1.0-SNAPSHOT</version>
+                </project>
+                """);
+
+        PomInfo info = PomParser.parse(pom);
+        assertEquals("com.example", info.groupId());
+        assertEquals("validator", info.artifactId());
+        assertEquals("1.0-SNAPSHOT", info.version());
+
+        // Intended difference: the DOM lookups returned the parent's coordinates
+        PomInfo dom = DomLookups.read(pom);
+        assertEquals("org.springframework.boot", dom.groupId());
+        assertEquals("spring-boot-starter-parent", dom.artifactId());
+        assertEquals("3.4.0", dom.version());
+    }
+
+    @Test
+    void groupIdAndVersionAreInheritedFromTheParent() throws Exception {
+        File pom = write("""
+                <project xmlns="http://maven.apache.org/POM/4.0.0">
+                  <parent>
+                    <groupId>com.example</groupId>
+                    <artifactId>parent</artifactId>
+                    <version>2.0</version>
+                  </parent>
+                  <artifactId>validator</artifactId>
+                </project>
+                """);
+
+        PomInfo info = PomParser.parse(pom);
+        assertEquals("com.example", info.groupId());
+        assertEquals("validator", info.artifactId());
+        assertEquals("2.0", info.version());
+    }
+
+    @Test
+    void dependencyCoordinatesAreNotTakenForAMissingGroupId() throws Exception {
+        File pom = write("""
+                <project xmlns="http://maven.apache.org/POM/4.0.0">
+                  <dependencies>
+                    <dependency>
+                      <groupId>com.cthiebaud</groupId>
+                      <artifactId>password-validator</artifactId>
+                      <version>1.1.1-SNAPSHOT</version>
+                    </dependency>
+                  </dependencies>
+                  <artifactId>validator</artifactId>
+                </project>
+                """);
+
+        PomInfo info = PomParser.parse(pom);
+        assertEquals("validator", info.artifactId());
+        assertNull(info.groupId());
+        assertNull(info.version());
+
+        // Intended difference: the DOM lookups returned the dependency's
+        PomInfo dom = DomLookups.read(pom);
+        assertEquals("com.cthiebaud", dom.groupId());
+        assertEquals("password-validator", dom.artifactId());
+    }
+
+    @Test
+    void onlyTheProjectScmAndDevelopersAreRead() throws Exception {
+        File pom = write("""
+                <project xmlns="http://maven.apache.org/POM/4.0.0">
+                  <artifactId>validator</artifactId>
+                  <build>
+                    <plugins>
+                      <plugin>
+                        <artifactId>maven-release-plugin</artifactId>
+                        <configuration>
+                          <scm><url>https://example.com/plugin</url></scm>
+                          <developer><id>plugin</id></developer>
+                        </configuration>
+                      </plugin>
+                    </plugins>
+                  </build>
+                  <scm><url>https://example.com/project</url></scm>
+                  <developers>
+                    <developer><id>dev</id><name>Dev</name><email>dev@example.com</email></developer>
+                  </developers>
+                </project>
+                """);
+
+        PomInfo info = PomParser.parse(pom);
+        assertEquals("https://example.com/project", info.scmUrl());
+        assertEquals(List.of(new Developer("dev", "Dev", "dev@example.com", pom.getName())), info.developers());
+
+        // Intended difference: the DOM lookups took the first <scm> and every <developer>
+        PomInfo dom = DomLookups.read(pom);
+        assertEquals("https://example.com/plugin", dom.scmUrl());
+        assertEquals(2, dom.developers().size());
+    }
+
+    @Test
+    void entitiesDeclaredInADoctypeAreRejected() throws Exception {
+        File pom = write("""
+                <?xml version="1.0"?>
+                <!DOCTYPE project [<!ENTITY name "validator">]>
+                <project xmlns="http://maven.apache.org/POM/4.0.0">
+                  <artifactId>&name;</artifactId>
+                </project>
+                """);
+
+        assertThrows(XMLStreamException.class, () -> PomParser.parse(pom));
+    }
+
+    private File write(String content) throws IOException {
+        Path pom = tempDir.resolve("validator-1.0.pom");
+        Files.writeString(pom, content.strip());
+        return pom.toFile();
+    }
+
+    // The sample POMs, and those of downloaded_packages when there are any
+    private static List<Path> samplePoms() throws IOException, URISyntaxException {
+        List<Path> poms = new ArrayList<>();
+        for (Path directory : List.of(Path.of(PomParserTest.class.getResource("/poms").toURI()),
+                Path.of(AcceptanceRunner.DOWNLOADED_DIR))) {
+            if (Files.isDirectory(directory)) {
+                try (Stream<Path> files = Files.list(directory)) {
+                    files.filter(file -> file.getFileName().toString().endsWith(".pom")).sorted().forEach(poms::add);
+                }
+            }
+        }
+        return poms;
+    }
+
+    /**
+     * The lookups of {@code MetadataExtractor} before {@link PomParser}: the
+     * first element of each name anywhere in the document.
+     */
+    private static final class DomLookups {
+
+        static PomInfo read(File pomFile) throws Exception {
+            Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(pomFile);
+            doc.getDocumentElement().normalize();
+
+            List<Developer> developers = new ArrayList<>();
+            NodeList developerNodes = doc.getElementsByTagName("developer");
+            for (int i = 0; i < developerNodes.getLength(); i++) {
+                Node developerNode = developerNodes.item(i);
+                if (developerNode.getNodeType() == Node.ELEMENT_NODE) {
+                    Element developerElement = (Element) developerNode;
+                    developers.add(new Developer(getElementValue(developerElement, "id"),
+                            getElementValue(developerElement, "name"), getElementValue(developerElement, "email"),
+                            pomFile.getName()));
+                }
+            }
+
+            String scmUrl = null;
+            NodeList scmNodes = doc.getElementsByTagName("scm");
+            if (scmNodes.getLength() > 0) {
+                scmUrl = getElementValue((Element) scmNodes.item(0), "url");
+            }
+
+            return new PomInfo(getElementValue(doc.getDocumentElement(), "artifactId"),
+                    getElementValue(doc.getDocumentElement(), "groupId"),
+                    getElementValue(doc.getDocumentElement(), "version"), developers, scmUrl);
+        }
+
+        private static String getElementValue(Element parent, String tagName) {
+            NodeList nodeList = parent.getElementsByTagName(tagName);
+            if (nodeList != null && nodeList.getLength() > 0) {
+                return nodeList.item(0).getTextContent();
+            }
+            return null;
+        }
+    }
+}
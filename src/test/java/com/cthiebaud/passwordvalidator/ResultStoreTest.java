@@ -0,0 +1,162 @@
+package com.cthiebaud.passwordvalidator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cthiebaud.passwordvalidator.AcceptanceRunner.AcceptanceResult;
+import com.cthiebaud.passwordvalidator.AcceptanceRunner.CheckResult;
+import com.cthiebaud.passwordvalidator.AcceptanceRunner.Outcome;
+import com.cthiebaud.passwordvalidator.ResultStore.Change;
+import com.cthiebaud.passwordvalidator.ResultStore.Kind;
+import com.cthiebaud.passwordvalidator.ResultStore.Record;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that the runs of {@link ResultStore} stay apart, how they are
+ * compared and reused, and that a torn last line is cut off.
+ */
+class ResultStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void runsStartedInTheSameSecondAreDiffedApart() throws Exception {
+        Path path = tempDir.resolve(ResultStore.STORE_FILE);
+        String first;
+        String second;
+        try (ResultStore store = ResultStore.open(path)) {
+            first = store.newRun();
+            store.append(record(first, Outcome.FAILED));
+            second = store.newRun();
+            store.append(record(second, Outcome.PASSED));
+
+            assertNotEquals(first, second);
+            assertTrue(Instant.parse(second).isAfter(Instant.parse(first)), first + " then " + second);
+            List<Change> changes = store.diff(second);
+            assertEquals(1, changes.size());
+            assertEquals(Kind.FIXED, changes.get(0).kind());
+        }
+
+        // A run recorded with a name later than the clock is still followed
+        Files.writeString(path, Files.readString(path).replace(second, "2999-01-01T00:00:00Z"));
+        try (ResultStore store = ResultStore.open(path)) {
+            assertEquals("2999-01-01T00:00:00.000000001Z", store.newRun());
+        }
+    }
+
+    @Test
+    void everyKindOfChangeIsFound() throws Exception {
+        CheckResult failedCheck = new CheckResult("acceptance", false, "AssertionError");
+        CheckResult otherFailedCheck = new CheckResult("acceptance", false, "NullPointerException");
+        try (ResultStore store = ResultStore.open(tempDir.resolve(ResultStore.STORE_FILE))) {
+            String first = store.newRun();
+            store.append(record(first, "regressed", "sha", "1.0", Outcome.PASSED));
+            store.append(record(first, "changed", "sha", "1.0", Outcome.FAILED, failedCheck));
+            store.append(record(first, "timed-out", "sha", "1.0", Outcome.PASSED));
+            store.append(record(first, "unchanged", "sha", "1.0", Outcome.FAILED, failedCheck));
+            store.append(record(first, "not-tested", "sha", "1.0", Outcome.PASSED));
+            String second = store.newRun();
+            store.append(record(second, "regressed", "sha", "1.0", Outcome.FAILED, failedCheck));
+            store.append(record(second, "changed", "sha", "1.0", Outcome.FAILED, otherFailedCheck));
+            store.append(record(second, "timed-out", "sha", "1.0", Outcome.TIMEOUT));
+            store.append(record(second, "unchanged", "sha", "1.0", Outcome.FAILED, failedCheck));
+            store.append(record(second, "new", "sha", "1.0", Outcome.FAILED, failedCheck));
+
+            Map<String, Change> changes = store.diff(second).stream()
+                    .collect(Collectors.toMap(Change::project, change -> change));
+
+            assertEquals(5, changes.size());
+            assertEquals(Kind.REGRESSED, changes.get("regressed").kind());
+            assertEquals(Kind.CHANGED, changes.get("changed").kind());
+            assertEquals(Kind.REGRESSED, changes.get("timed-out").kind());
+            assertEquals(Kind.UNCHANGED, changes.get("unchanged").kind());
+            assertEquals(Kind.NEW, changes.get("new").kind());
+            assertNull(changes.get("new").previous());
+            assertEquals(first, changes.get("changed").previous().run());
+            // The first run is compared with nothing
+            assertTrue(store.diff(first).stream().allMatch(change -> change.kind() == Kind.NEW));
+        }
+    }
+
+    @Test
+    void runIsReusedOnlyForTheSameJarAndReference() throws Exception {
+        Path path = tempDir.resolve(ResultStore.STORE_FILE);
+        try (ResultStore store = ResultStore.open(path)) {
+            store.append(record(store.newRun(), "alpha", "sha", "1.0", Outcome.FAILED));
+            Record failed = store.latest("alpha").orElseThrow();
+
+            assertTrue(failed.isReusableFor("sha", "1.0"));
+            assertFalse(failed.isReusableFor("pushed-again", "1.0"));
+            assertFalse(failed.isReusableFor("sha", "1.1"));
+            assertFalse(failed.isReusableFor(null, "1.0"));
+
+            // A timeout is run again, and that run can be reused
+            store.append(record(store.newRun(), "alpha", "sha", "1.0", Outcome.TIMEOUT));
+            assertFalse(store.latest("alpha").orElseThrow().isReusableFor("sha", "1.0"));
+            store.append(record(store.newRun(), "alpha", "sha", "1.0", Outcome.PASSED));
+            assertTrue(store.latest("alpha").orElseThrow().isReusableFor("sha", "1.0"));
+        }
+
+        // Read back from the file
+        try (ResultStore store = ResultStore.open(path)) {
+            List<Record> history = store.history("alpha");
+            assertEquals(List.of(Outcome.FAILED, Outcome.TIMEOUT, Outcome.PASSED),
+                    history.stream().map(Record::outcome).toList());
+            assertFalse(history.get(1).isReusableFor("sha", "1.0"));
+            assertTrue(history.get(2).isReusableFor("sha", "1.0"));
+        }
+    }
+
+    @Test
+    void tornLastLineIsTruncatedOnOpen() throws Exception {
+        Path path = tempDir.resolve(ResultStore.STORE_FILE);
+        String run;
+        try (ResultStore store = ResultStore.open(path)) {
+            run = store.newRun();
+            store.append(record(run, "alpha", "sha", "1.0", Outcome.PASSED));
+            store.append(record(run, "beta", "sha", "1.0", Outcome.FAILED));
+        }
+        String complete = Files.readString(path);
+        // As left by a crash in the middle of an append
+        Files.writeString(path, "{\"run\":\"" + run + "\",\"project\":\"gam", StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+
+        try (ResultStore store = ResultStore.open(path)) {
+            assertEquals(complete, Files.readString(path));
+            assertEquals(List.of("alpha", "beta"), store.projects());
+
+            // The next record starts on a line of its own
+            store.append(record(run, "gamma", "sha", "1.0", Outcome.PASSED));
+        }
+        try (ResultStore store = ResultStore.open(path)) {
+            assertEquals(List.of("alpha", "beta", "gamma"), store.projects());
+            assertEquals(Outcome.PASSED, store.latest("gamma").orElseThrow().outcome());
+            assertEquals(Outcome.FAILED, store.latest("beta").orElseThrow().outcome());
+        }
+    }
+
+    private static Record record(String run, Outcome outcome) {
+        return record(run, "com.acme.alpha", "sha", "1.0", outcome);
+    }
+
+    private static Record record(String run, String project, String jarSha256, String referenceVersion,
+            Outcome outcome, CheckResult... checks) {
+        return Record.of(run, project, null, jarSha256, referenceVersion,
+                new AcceptanceResult(project + "-1.0.jar", outcome, 10, List.of(checks), null));
+    }
+}
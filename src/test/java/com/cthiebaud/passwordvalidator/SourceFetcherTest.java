@@ -0,0 +1,199 @@
+package com.cthiebaud.passwordvalidator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cthiebaud.passwordvalidator.MetadataExtractor.PomInfo;
+import com.cthiebaud.passwordvalidator.SourceFetcher.Result;
+import com.cthiebaud.passwordvalidator.SourceFetcher.Status;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Runs {@link SourceFetcher} against a local bare repository and a
+ * {@code file:} Maven repository.
+ */
+class SourceFetcherTest {
+
+    private static final String ZIP_PATH = "com/acme/alpha/1.0/alpha-1.0-project-zip.zip";
+
+    @TempDir
+    Path tempDir;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private Path sourcesDir;
+    private Path repository;
+
+    @BeforeEach
+    void createDirectories() throws IOException {
+        sourcesDir = Files.createDirectories(tempDir.resolve("downloaded_sources"));
+        repository = Files.createDirectories(tempDir.resolve("repository"));
+    }
+
+    @AfterEach
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void clonesThenSkipsThenUpdatesAndResetsLocalEdits() throws Exception {
+        Path origin = tempDir.resolve("origin.git");
+        git(null, "init", "--quiet", "--bare", "--initial-branch=main", origin.toString());
+        Path work = tempDir.resolve("work");
+        git(null, "clone", "--quiet", origin.toString(), work.toString());
+        String first = commit(work, "Validator.java", "class Validator {}\n");
+        PomInfo info = new PomInfo("alpha", "com.acme", "1.0", List.of(), origin.toUri().toString());
+        Path clone = sourcesDir.resolve("com.acme.alpha");
+
+        Result cloned = fetcher().fetch("com.acme.alpha", info);
+        assertEquals(Status.CLONED, cloned.status(), cloned.detail());
+        assertEquals(first.substring(0, 10), cloned.detail());
+        assertEquals("class Validator {}\n", Files.readString(clone.resolve("Validator.java")));
+
+        Result unchanged = fetcher().fetch("com.acme.alpha", info);
+        assertEquals(Status.UP_TO_DATE, unchanged.status(), unchanged.detail());
+
+        String second = commit(work, "Validator.java", "class Validator { int version = 2; }\n");
+        Result updated = fetcher().fetch("com.acme.alpha", info);
+        assertEquals(Status.UPDATED, updated.status(), updated.detail());
+        assertEquals(first.substring(0, 10) + ".." + second.substring(0, 10), updated.detail());
+        assertEquals("class Validator { int version = 2; }\n", Files.readString(clone.resolve("Validator.java")));
+
+        // A student's edit to a tracked file is reset even when nothing moved upstream
+        Files.writeString(clone.resolve("Validator.java"), "edited");
+        Result reset = fetcher().fetch("com.acme.alpha", info);
+        assertEquals(Status.UP_TO_DATE, reset.status(), reset.detail());
+        assertEquals("class Validator { int version = 2; }\n", Files.readString(clone.resolve("Validator.java")));
+    }
+
+    @Test
+    void nestedZipIsFlattenedAndSkippedUntilItsChecksumChanges() throws Exception {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("alpha-1.0/", null);
+        entries.put("alpha-1.0/pom.xml", "<project/>");
+        entries.put("alpha-1.0/src/Validator.java", "class Validator {}");
+        publishZip(entries);
+        PomInfo info = new PomInfo("alpha", "com.acme", "1.0", List.of(), null);
+        Path directory = sourcesDir.resolve("com.acme.alpha");
+
+        Result extracted = fetcher().fetch("com.acme.alpha", info);
+        assertEquals(Status.EXTRACTED, extracted.status(), extracted.detail());
+        assertEquals("2 files", extracted.detail());
+        assertEquals("<project/>", Files.readString(directory.resolve("pom.xml")));
+        assertEquals("class Validator {}", Files.readString(directory.resolve("src/Validator.java")));
+        assertFalse(Files.exists(directory.resolve("alpha-1.0")));
+
+        Result unchanged = fetcher().fetch("com.acme.alpha", info);
+        assertEquals(Status.UP_TO_DATE, unchanged.status(), unchanged.detail());
+
+        // A new zip, with its new .sha1, replaces the whole directory
+        publishZip(Map.of("alpha-1.0/pom.xml", "<project><version>2</version></project>"));
+        Result changed = fetcher().fetch("com.acme.alpha", info);
+        assertEquals(Status.EXTRACTED, changed.status(), changed.detail());
+        assertEquals("<project><version>2</version></project>", Files.readString(directory.resolve("pom.xml")));
+        assertFalse(Files.exists(directory.resolve("src")));
+    }
+
+    @Test
+    void flatZipIsExtractedAsIs() throws Exception {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("pom.xml", "<project/>");
+        entries.put("src/Validator.java", "class Validator {}");
+        publishZip(entries);
+
+        Result extracted = fetcher().fetch("com.acme.alpha", new PomInfo("alpha", "com.acme", "1.0", List.of(),
+                null));
+
+        assertEquals(Status.EXTRACTED, extracted.status(), extracted.detail());
+        Path directory = sourcesDir.resolve("com.acme.alpha");
+        assertEquals("<project/>", Files.readString(directory.resolve("pom.xml")));
+        assertEquals("class Validator {}", Files.readString(directory.resolve("src/Validator.java")));
+    }
+
+    @Test
+    void zipEntryOutsideOfTheTargetIsRejected() throws Exception {
+        byte[] zip = zip(Map.of("../evil.txt", "evil"));
+        Path directory = sourcesDir.resolve("com.acme.alpha");
+
+        IOException e = assertThrows(IOException.class,
+                () -> SourceFetcher.unzip(new ZipInputStream(new ByteArrayInputStream(zip)), directory));
+
+        assertTrue(e.getMessage().contains("../evil.txt"), e.getMessage());
+        assertFalse(Files.exists(sourcesDir.resolve("evil.txt")));
+    }
+
+    private SourceFetcher fetcher() {
+        return new SourceFetcher(sourcesDir, MavenRepository.of(repository.toUri(), null, null, null, executor), 30);
+    }
+
+    // Publishes the project-zip of com.acme:alpha:1.0 with its .sha1
+    private void publishZip(Map<String, String> entries) throws Exception {
+        byte[] zip = zip(entries);
+        Path file = repository.resolve(ZIP_PATH);
+        Files.createDirectories(file.getParent());
+        Files.write(file, zip);
+        Files.writeString(repository.resolve(ZIP_PATH + ".sha1"),
+                HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(zip)));
+    }
+
+    // A null content makes a directory entry
+    private static byte[] zip(Map<String, String> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                if (entry.getValue() != null) {
+                    zip.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                }
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    // Commits a file and pushes it, returning the new HEAD
+    private static String commit(Path work, String file, String content) throws Exception {
+        Files.writeString(work.resolve(file), content);
+        git(work, "add", file);
+        git(work, "-c", "user.name=Test", "-c", "user.email=test@example.com", "commit", "--quiet", "-m",
+                "Change " + file);
+        git(work, "push", "--quiet", "origin", "HEAD:main");
+        return git(work, "rev-parse", "HEAD").trim();
+    }
+
+    private static String git(Path directory, String... arguments) throws Exception {
+        List<String> command = new ArrayList<>(List.of("git"));
+        if (directory != null) {
+            command.add("-C");
+            command.add(directory.toString());
+        }
+        command.addAll(List.of(arguments));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertEquals(0, process.waitFor(), String.join(" ", command) + ": " + output);
+        return output;
+    }
+}